@@ -0,0 +1,63 @@
+package com.encounterpc.ticker;
+
+import android.net.Uri;
+
+/**
+ * Immutable display model of a ticker article: the text as it is shown and
+ * the links it opens. Articles are prepared off the main thread by
+ * {@link Articles#prepare}, so the main thread only binds text. Articles are
+ * equal if their links are, like the RSS items they have been prepared from.
+ */
+final class Article {
+    final String title;
+
+    /**
+     * Source label, or null if the article has none.
+     */
+    final String source;
+
+    final String time;
+    final Uri link;
+
+    /**
+     * Link of the source, or null if the article has none.
+     */
+    final Uri sourceUrl;
+
+    /**
+     * Thumbnail to show, or null if the article has none.
+     */
+    final Uri thumbnail;
+
+    /**
+     * Size of the thumbnail as it is shown, in pixels.
+     */
+    final int thumbnailWidth;
+    final int thumbnailHeight;
+
+    Article(String title, String source, String time, Uri link, Uri sourceUrl,
+            Uri thumbnail, int thumbnailWidth, int thumbnailHeight) {
+        this.title = title;
+        this.source = source;
+        this.time = time;
+        this.link = link;
+        this.sourceUrl = sourceUrl;
+        this.thumbnail = thumbnail;
+        this.thumbnailWidth = thumbnailWidth;
+        this.thumbnailHeight = thumbnailHeight;
+    }
+
+    @Override
+    public int hashCode() {
+        return link == null ? System.identityHashCode(this) : link.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object)
+            return true;
+        if (!(object instanceof Article) || link == null)
+            return false;
+        return link.equals(((Article) object).link);
+    }
+}
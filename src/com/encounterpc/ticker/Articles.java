@@ -0,0 +1,167 @@
+package com.encounterpc.ticker;
+
+import android.net.Uri;
+import android.text.Html;
+import org.mcsoxford.rss.MediaThumbnail;
+import org.mcsoxford.rss.RSSConfig;
+import org.mcsoxford.rss.RSSDiff;
+import org.mcsoxford.rss.RSSItem;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prepares the display models of ticker articles, so that every way of
+ * rendering the ticker shows the same text. Preparing decodes HTML and
+ * formats dates, so it should not run on the main thread.
+ */
+final class Articles {
+    /**
+     * Title which ends with its source in brackets.
+     */
+    private final static Pattern TITLE_SOURCE = Pattern.compile("^(.*\\S)[ \\t]*\\[([^\\]]+)\\]$");
+
+    /**
+     * Widest aspect ratio at which thumbnails are shown.
+     */
+    private final static int MAX_THUMBNAIL_ASPECT = 2;
+
+    private Articles() {
+    }
+
+    /**
+     * Returns the display models of the specified items, in the same order.
+     * Items without a title or a date are shown with an empty one.
+     *
+     * @param thumbnailHeight height in pixels at which thumbnails are shown
+     */
+    static List<Article> prepare(List<RSSItem> items, int thumbnailHeight) {
+        return prepare(items, thumbnailHeight, Collections.<RSSItem, Article>emptyMap());
+    }
+
+    /**
+     * Returns the display models of the current items of a feed whose
+     * previous items are shown as the specified articles. The articles of
+     * items which have not changed, and whose time is still formatted the
+     * same, are reused, so the tickers only bind and lay out the others.
+     *
+     * @param diff difference between the previous and the current items
+     * @return the previous articles if all of them are reused in their order
+     */
+    static List<Article> update(List<RSSItem> previousItems, List<Article> previous, List<RSSItem> items,
+                                RSSDiff diff, int thumbnailHeight) {
+        // items are matched by the diff, so equal links do not share articles
+        Map<RSSItem, Article> shown = new IdentityHashMap<RSSItem, Article>(previousItems.size());
+        for (int i = 0, size = previousItems.size(); i < size; i++)
+            shown.put(previousItems.get(i), previous.get(i));
+        Map<RSSItem, Article> unchanged = new IdentityHashMap<RSSItem, Article>(items.size());
+        for (int i = 0, size = items.size(); i < size; i++) {
+            RSSItem before = diff.getUnchanged(items.get(i));
+            if (before != null && shown.containsKey(before))
+                unchanged.put(items.get(i), shown.get(before));
+        }
+        List<Article> articles = prepare(items, thumbnailHeight, unchanged);
+        if (articles.size() != previous.size())
+            return articles;
+        for (int i = 0, size = articles.size(); i < size; i++) {
+            if (articles.get(i) != previous.get(i))
+                return articles;
+        }
+        return previous;
+    }
+
+    private static List<Article> prepare(List<RSSItem> items, int thumbnailHeight, Map<RSSItem, Article> unchanged) {
+        if (items.isEmpty())
+            return Collections.emptyList();
+
+        // formatters are not thread-safe, so every call has its own
+        SimpleDateFormat timeFormat = new SimpleDateFormat(MainActivity.TIME_FORMAT);
+        SimpleDateFormat dateTimeFormat = new SimpleDateFormat(MainActivity.DATE_FORMAT + " " + MainActivity.TIME_FORMAT);
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long today = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_YEAR, 1);
+        long tomorrow = calendar.getTimeInMillis();
+
+        List<Article> articles = new ArrayList<Article>(items.size());
+        for (int i = 0, size = items.size(); i < size; i++) {
+            RSSItem item = items.get(i);
+            Date date = item.isLoaded(RSSConfig.PUBDATE) ? item.getPubDate() : null;
+            String time = "";
+            if (date != null) {
+                boolean isToday = date.getTime() >= today && date.getTime() < tomorrow;
+                time = (isToday ? timeFormat : dateTimeFormat).format(date);
+            }
+            Article previous = unchanged.get(item);
+            if (previous != null && previous.time.equals(time)) {
+                articles.add(previous);
+                continue;
+            }
+
+            String title = "";
+            if (item.isLoaded(RSSConfig.TITLE) && item.getTitle() != null)
+                title = Html.fromHtml(item.getTitle()).toString();
+            String source = null;
+            Matcher m = TITLE_SOURCE.matcher(title);
+            if (m.find()) {
+                title = m.group(1);
+                source = m.group(2);
+            }
+            Uri sourceUrl = null;
+            if (item.isLoaded(RSSConfig.SOURCE)) {
+                if (item.getSourceName() != null)
+                    source = item.getSourceName();
+                sourceUrl = item.getSourceUrl();
+            }
+            Uri link = item.isLoaded(RSSConfig.LINK) ? item.getLink() : null;
+
+            MediaThumbnail thumbnail = thumbnail(item, thumbnailHeight);
+            if (thumbnail != null) {
+                int width = thumbnailHeight;
+                if (thumbnail.getWidth() > 0 && thumbnail.getHeight() > 0)
+                    width = Math.min(thumbnailHeight * thumbnail.getWidth() / thumbnail.getHeight(),
+                            thumbnailHeight * MAX_THUMBNAIL_ASPECT);
+                articles.add(new Article(title, source, time, link, sourceUrl, thumbnail.getUrl(),
+                        width, thumbnailHeight));
+            } else
+                articles.add(new Article(title, source, time, link, sourceUrl, null, 0, 0));
+        }
+        return articles;
+    }
+
+    /**
+     * Returns the smallest thumbnail which is declared at least as high as the
+     * specified height, the highest one if none is, or the first one if no
+     * heights are declared. Returns null if the item has no thumbnails.
+     */
+    private static MediaThumbnail thumbnail(RSSItem item, int height) {
+        if (!item.isLoaded(RSSConfig.THUMBNAILS))
+            return null;
+        List<MediaThumbnail> thumbnails = item.getThumbnails();
+        MediaThumbnail best = null;
+        for (int i = 0, size = thumbnails.size(); i < size; i++) {
+            MediaThumbnail thumbnail = thumbnails.get(i);
+            if (best == null) {
+                best = thumbnail;
+                continue;
+            }
+            boolean fits = thumbnail.getHeight() >= height;
+            boolean bestFits = best.getHeight() >= height;
+            if (fits ? !bestFits || thumbnail.getHeight() < best.getHeight()
+                    : !bestFits && thumbnail.getHeight() > best.getHeight())
+                best = thumbnail;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,154 @@
+package com.encounterpc.ticker;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Thread-safe LRU cache of byte arrays in a directory, bounded by the total
+ * size of its files. Every entry is a file named after the hash of its key;
+ * reading an entry touches its file, so the files which have been used least
+ * recently are deleted first.
+ */
+final class DiskCache {
+    private final static String TAG = "DiskCache";
+
+    private final static Comparator<File> OLDEST_FIRST = new Comparator<File>() {
+        @Override
+        public int compare(File a, File b) {
+            long x = a.lastModified();
+            long y = b.lastModified();
+            return x < y ? -1 : (x == y ? 0 : 1);
+        }
+    };
+
+    private final File directory;
+    private final long maxBytes;
+
+    DiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the bytes stored for the specified key, or null if there are
+     * none.
+     */
+    synchronized byte[] get(String key) {
+        File file = file(key);
+        if (!file.isFile())
+            return null;
+        try {
+            byte[] bytes = read(file);
+            file.setLastModified(System.currentTimeMillis());
+            return bytes;
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the bytes for the specified key and deletes the least recently
+     * used entries until the cache fits its bound again.
+     */
+    synchronized void put(String key, byte[] bytes) {
+        if (bytes.length > maxBytes || !directory.isDirectory() && !directory.mkdirs())
+            return;
+        File file = file(key);
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file))
+                throw new IOException("Cannot rename " + tmp);
+        } catch (IOException e) {
+            tmp.delete();
+            Log.w(TAG, "Cannot write " + file, e);
+            return;
+        }
+        trim();
+    }
+
+    /**
+     * Deletes the bytes stored for the specified key, if there are any.
+     */
+    synchronized void remove(String key) {
+        file(key).delete();
+    }
+
+    private void trim() {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+        long size = 0;
+        for (File file : files)
+            size += file.length();
+        if (size <= maxBytes)
+            return;
+        Arrays.sort(files, OLDEST_FIRST);
+        for (int i = 0; i < files.length && size > maxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete())
+                size -= length;
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, hash(key));
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return readFully(in, (int) file.length(), Integer.MAX_VALUE);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the stream to its end.
+     *
+     * @throws IOException if the stream is longer than the limit
+     */
+    static byte[] readFully(InputStream in, int sizeHint, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(sizeHint, 1024));
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (out.size() + n > limit)
+                throw new IOException("Stream is longer than " + limit + " bytes");
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
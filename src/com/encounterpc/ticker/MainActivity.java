@@ -7,82 +7,219 @@ import android.content.Intent;
 import android.graphics.PixelFormat;
 import android.net.Uri;
 import android.os.Bundle;
-import android.text.Html;
+import android.util.Log;
 import android.view.*;
 import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
-import android.widget.HorizontalScrollView;
 import android.widget.TextView;
+import org.mcsoxford.rss.RSSAggregator;
+import org.mcsoxford.rss.RSSCache;
+import org.mcsoxford.rss.RSSConfig;
+import org.mcsoxford.rss.RSSDiff;
 import org.mcsoxford.rss.RSSFeed;
 import org.mcsoxford.rss.RSSItem;
+import org.mcsoxford.rss.RSSLoader;
 import org.mcsoxford.rss.RSSReader;
+import org.mcsoxford.rss.RSSScheduler;
+import org.mcsoxford.rss.RSSSnapshot;
+import org.mcsoxford.rss.RSSValidators;
+
+import java.io.File;
+import java.io.IOException;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MainActivity extends Activity {
-    private LayoutInflater inflater;
-
-    public final static int TICKER_SPEED_FAST = 3;
-    public final static int TICKER_SPEED_MEDIUM = 2;
-    public final static int TICKER_SPEED_SLOW = 1;
+    private final static String TAG = "MainActivity";
+
+    /**
+     * Ticker speeds in pixels per second.
+     */
+    public final static int TICKER_SPEED_FAST = 150;
+    public final static int TICKER_SPEED_MEDIUM = 100;
+    public final static int TICKER_SPEED_SLOW = 50;
+
+    /**
+     * Pause before the ticker starts scrolling or restarts from the beginning.
+     */
+    private final static int TICKER_RESUME_MILLIS = 1500;
+
+    /**
+     * Up to this many articles are drawn from tiles rendered off the main
+     * thread. The strip is laid out as a whole, so longer lists, such as all
+     * feeds merged, scroll through the marquee, which only keeps the views of
+     * visible articles.
+     */
+    private final static int RASTER_MAX_ARTICLES = 100;
 
     public final static String DATE_FORMAT = "MM/dd";
     public final static String TIME_FORMAT = "hh:mm aa";
 
     public final static int REFRESH_MINUTES = 30;
 
-    private HorizontalScrollView ticker;
-    private ViewGroup tickerContent;
+    /**
+     * Bounds of the delay until the scheduler is asked again for due feeds.
+     */
+    private final static long POLL_CHECK_MIN_MILLIS = 1000;
+    private final static long POLL_CHECK_MAX_MILLIS = 60 * 1000;
+
+    public final static int CACHE_MINUTES = 5;
+    public final static int CACHE_ENTRIES = 8;
+    public final static long CACHE_BYTES = 2 * 1024 * 1024;
+
+    /**
+     * Thumbnails are shown this high in the 40dp ticker.
+     */
+    public final static int THUMBNAIL_DIP = 32;
+    public final static int THUMBNAIL_MEMORY_BYTES = 4 * 1024 * 1024;
+    public final static long THUMBNAIL_DISK_BYTES = 10 * 1024 * 1024;
+    public final static int THUMBNAIL_THREADS = 2;
+
+    /**
+     * The ticker never shows descriptions, contents or categories. Guids
+     * identify refreshed items which have no link.
+     */
+    private final static RSSConfig FEED_CONFIG = new RSSConfig(
+            RSSConfig.TITLE | RSSConfig.LINK | RSSConfig.PUBDATE | RSSConfig.SOURCE | RSSConfig.THUMBNAILS
+                    | RSSConfig.GUID);
+
+    private Ticker ticker;
+    private View tickerView;
+    private TickerMarqueeView marqueeTicker;
+    private RasterTickerView rasterTicker;
+    private TickerAdapter tickerAdapter;
+    private Thumbnails thumbnails;
+    private int thumbnailHeight;
     private ViewGroup info;
 
-    private Thread tickerThread;
-    private Thread tickerResume;
-    private boolean tickerActive;
+    /**
+     * Starts the ticker after a pause, or rewinds it first if it is at the end.
+     */
+    private final Runnable resumeTicker = new Runnable() {
+        @Override
+        public void run() {
+            if (ticker.isAtEnd()) {
+                ticker.rewind();
+                ThreadUtil.mainThreadHandler.postDelayed(this, TICKER_RESUME_MILLIS);
+            } else
+                ticker.start();
+        }
+    };
+
+    private final static Map<String, Uri> FEEDS = new LinkedHashMap<String, Uri>();
+
+    static {
+        FEEDS.put("Gizmodo", Uri.parse("http://feeds.gawker.com/gizmodo/full"));
+        FEEDS.put("Lifehacker", Uri.parse("http://feeds.gawker.com/lifehacker/full"));
+        FEEDS.put("RootzWiki", Uri.parse("http://rootzwiki.com/rss/ccs/1-rootzwiki/"));
+        FEEDS.put("Yahoo! News", Uri.parse("http://news.yahoo.com/rss/"));
+    }
+
+    /**
+     * Pseudo feed which merges the articles of all feeds, newest first.
+     */
+    private final static Uri ALL_FEEDS = Uri.parse("ticker:all");
+    private final static String ALL_FEEDS_TITLE = "All feeds";
 
     private Uri currentFeed = Uri.parse("http://feeds.gawker.com/gizmodo/full");
     private boolean feedUpdating;
+    private RSSValidators validators;
+    private RSSCache cache;
+    private RSSLoader loader;
+    private RSSAggregator aggregator;
+    private RSSScheduler scheduler;
+
+    /**
+     * Refreshes the shown feed whenever the scheduler says it is due.
+     */
+    private final Runnable poll = new Runnable() {
+        @Override
+        public void run() {
+            long now = System.currentTimeMillis();
+            for (String uri : scheduler.due(now)) {
+                if (uri.equals(currentFeed.toString()) && !feedUpdating) {
+                    cache.invalidate(uri);
+                    updateFeed();
+                } else
+                    scheduler.skipped(uri);
+            }
+            long delay = scheduler.nextPollTime() - System.currentTimeMillis();
+            ThreadUtil.mainThreadHandler.postDelayed(this,
+                    Math.max(POLL_CHECK_MIN_MILLIS, Math.min(POLL_CHECK_MAX_MILLIS, delay)));
+        }
+    };
+    private boolean snapshotShown;
+
+    /**
+     * Feed whose snapshot has last been read or written, by URI.
+     */
+    private final Map<String, RSSFeed> snapshotFeeds = new ConcurrentHashMap<String, RSSFeed>();
+
+    private String shownUri;
+
+    /**
+     * Items and articles last handed to the ticker. Only the worker thread of
+     * an update, of which there is one at a time, reads and writes them.
+     */
+    private volatile List<RSSItem> shownItems = Collections.emptyList();
+    private volatile List<Article> shownArticles = Collections.emptyList();
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main);
 
-        ticker = (HorizontalScrollView) findViewById(R.id.ticker);
-        tickerContent = (ViewGroup) findViewById(R.id.tickerContent);
+        marqueeTicker = (TickerMarqueeView) findViewById(R.id.ticker);
+        rasterTicker = (RasterTickerView) findViewById(R.id.rasterTicker);
+        thumbnailHeight = (int) (THUMBNAIL_DIP * getResources().getDisplayMetrics().density + 0.5f);
+        thumbnails = new Thumbnails(thumbnailHeight, THUMBNAIL_MEMORY_BYTES,
+                new File(getCacheDir(), "thumbnails"), THUMBNAIL_DISK_BYTES, THUMBNAIL_THREADS);
+        tickerAdapter = new TickerAdapter(this, thumbnails);
+        marqueeTicker.setAdapter(tickerAdapter);
+        rasterTicker.setThumbnails(thumbnails);
+        ticker = rasterTicker;
+        tickerView = rasterTicker;
+        marqueeTicker.setSpeed(TICKER_SPEED_FAST);
+        rasterTicker.setSpeed(TICKER_SPEED_FAST);
         info = (ViewGroup) findViewById(R.id.info);
         info.getBackground().setDither(true);
-        inflater = (LayoutInflater) getSystemService(LAYOUT_INFLATER_SERVICE);
+        validators = new RSSValidators(new File(getFilesDir(), "validators.properties"));
+        // single feeds and the sources of all feeds are read the same way
+        RSSReader reader = new RSSReader(FEED_CONFIG, validators);
+        cache = new RSSCache(reader, CACHE_ENTRIES, CACHE_BYTES, CACHE_MINUTES * 60 * 1000L);
+        loader = RSSLoader.fifo(FEEDS.size(), FEEDS.size(), reader);
+        // long lists scroll through the marquee, which only keeps the visible
+        // articles, so all of them can be shown
+        aggregator = new RSSAggregator(loader, Integer.MAX_VALUE);
+        for (Uri feed : FEEDS.values())
+            aggregator.add(feed.toString());
+        scheduler = new RSSScheduler(REFRESH_MINUTES * 60 * 1000L);
+        scheduler.add(currentFeed.toString());
 
         updateFeed();
 
-        tickerThread = new Thread() {
+        Ticker.OnEndListener onEnd = new Ticker.OnEndListener() {
             @Override
-            public void run() {
-                while (true) {
-                    try {
-                        sleep(20);
-                    } catch (InterruptedException ignored) {
-                        break;
-                    }
-                    if (!tickerActive) continue;
-                    ThreadUtil.runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            ticker.scrollBy(TICKER_SPEED_FAST, 0);
-                            if (checkTickerEnd()) {
-                                stopTicker();
-                                startTicker();
-                            }
-                        }
-                    });
-                }
+            public void onEnd(Ticker ticker) {
+                stopTicker();
+                startTicker();
             }
         };
+        marqueeTicker.setOnEndListener(onEnd);
+        rasterTicker.setOnEndListener(onEnd);
+
+        rasterTicker.setOnItemClickListener(new RasterTickerView.OnItemClickListener() {
+            @Override
+            public void onItemClick(Article article, boolean source) {
+                Uri uri = source && article.sourceUrl != null ? article.sourceUrl : article.link;
+                if (uri != null)
+                    startActivity(new Intent(Intent.ACTION_VIEW, uri));
+            }
+        });
 
-        ticker.setOnTouchListener(new View.OnTouchListener() {
+        View.OnTouchListener onTouch = new View.OnTouchListener() {
             @Override
             public boolean onTouch(View view, MotionEvent motionEvent) {
                 if (motionEvent.getAction() == MotionEvent.ACTION_DOWN) {
@@ -93,11 +230,14 @@ public class MainActivity extends Activity {
                 }
                 return false;
             }
-        });
+        };
+        marqueeTicker.setOnTouchListener(onTouch);
+        rasterTicker.setOnTouchListener(onTouch);
 
         findViewById(R.id.refresh).setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
+                cache.invalidate(currentFeed.toString());
                 updateFeed();
             }
         });
@@ -105,11 +245,8 @@ public class MainActivity extends Activity {
         findViewById(R.id.choosefeed).setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                Map<String, Uri> feeds = new LinkedHashMap<String, Uri>();
-                feeds.put("Gizmodo", Uri.parse("http://feeds.gawker.com/gizmodo/full"));
-                feeds.put("Lifehacker", Uri.parse("http://feeds.gawker.com/lifehacker/full"));
-                feeds.put("RootzWiki", Uri.parse("http://rootzwiki.com/rss/ccs/1-rootzwiki/"));
-                feeds.put("Yahoo! News", Uri.parse("http://news.yahoo.com/rss/"));
+                Map<String, Uri> feeds = new LinkedHashMap<String, Uri>(FEEDS);
+                feeds.put(ALL_FEEDS_TITLE, ALL_FEEDS);
 
                 String[] keys = Arrays.copyOf(feeds.keySet().toArray(), feeds.size(), String[].class);
 
@@ -122,7 +259,9 @@ public class MainActivity extends Activity {
                         .setTitle("Select feed")
                         .setSingleChoiceItems(keys, selected, new DialogInterface.OnClickListener() {
                             public void onClick(DialogInterface dialog, int item) {
+                                scheduler.remove(currentFeed.toString());
                                 currentFeed = values.get(item);
+                                scheduler.add(currentFeed.toString());
                                 updateFeed();
                                 dialog.dismiss();
                             }
@@ -192,83 +331,55 @@ public class MainActivity extends Activity {
     private void updateFeed() {
         if (!feedUpdating) {
             feedUpdating = true;
-            if (ticker.getVisibility() == View.VISIBLE) {
+            final String uri = currentFeed.toString();
+            // a refresh of the shown feed is merged into the running ticker
+            final boolean merge = uri.equals(shownUri);
+            if (!merge && tickerView.getVisibility() == View.VISIBLE) {
                 stopTicker();
-                fadeOut(ticker, 500, new Runnable() {
+                fadeOut(tickerView, 500, new Runnable() {
                     @Override
                     public void run() {
-                        tickerContent.removeAllViews();
+                        setTickerArticles(Collections.<Article>emptyList(), false);
                         fadeIn(findViewById(R.id.refreshContainer), 500, null);
                     }
                 });
             }
             new Thread() {
                 public void run() {
-                    try {
-                        sleep(1000); // hack to let animations finish TODO: fix?
-                    } catch (InterruptedException ignored) {
+                    final boolean all = ALL_FEEDS.toString().equals(uri);
+                    // on a cold start, show the last snapshot while the feed is loaded
+                    final RSSFeed stale = snapshotShown || all ? null : readSnapshot(uri);
+                    snapshotShown = true;
+                    if (stale != null) {
+                        showItems(uri, stale.getTitle(), stale.getItems());
+                    } else if (!merge) {
+                        try {
+                            sleep(1000); // hack to let animations finish TODO: fix?
+                        } catch (InterruptedException ignored) {
+                        }
                     }
                     try {
-                        final Pattern pattern = Pattern.compile("^.+\\[(.+)\\]$");
-                        RSSReader reader = new RSSReader();
-                        final RSSFeed feed = reader.load(currentFeed.toString());
-                        final List<RSSItem> items = feed.getItems();
-                        ThreadUtil.runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                for (int i = 0, itemsSize = 10; i < itemsSize; i++) {
-                                    final RSSItem item = items.get(i);
-                                    ViewGroup tickerItem = (ViewGroup) inflater.inflate(R.layout.ticker_article, null);
-                                    String title = Html.fromHtml(item.getTitle()).toString();
-                                    Matcher m = pattern.matcher(title);
-                                    if (m.find()) {
-                                        ((TextView) tickerItem.findViewById(R.id.source)).setText(m.group(1));
-                                        tickerItem.findViewById(R.id.source).setVisibility(View.VISIBLE);
-                                        ((TextView) tickerItem.findViewById(R.id.content)).setText(title.replaceFirst("[ \\t]*\\[.+\\]$", ""));
-                                    } else
-                                        ((TextView) tickerItem.findViewById(R.id.content)).setText(title);
-                                    Calendar c1 = Calendar.getInstance();
-                                    Calendar c2 = Calendar.getInstance();
-                                    c2.setTime(item.getPubDate());
-                                    boolean isToday = c1.get(Calendar.YEAR) == c2.get(Calendar.YEAR)
-                                            && c1.get(Calendar.DAY_OF_YEAR) == c2.get(Calendar.DAY_OF_YEAR);
-                                    SimpleDateFormat dateFormat = new SimpleDateFormat((!isToday ? DATE_FORMAT + " " : "") + TIME_FORMAT);
-                                    ((TextView) tickerItem.findViewById(R.id.time)).setText(dateFormat.format(item.getPubDate()));
-                                    if (item.getSourceName() != null) {
-                                        ((TextView) tickerItem.findViewById(R.id.source)).setText(item.getSourceName());
-                                        if (item.getSourceUrl() != null) {
-                                            tickerItem.findViewById(R.id.source).setOnClickListener(new View.OnClickListener() {
-                                                @Override
-                                                public void onClick(View view) {
-                                                    startActivity(new Intent(Intent.ACTION_VIEW, item.getSourceUrl()));
-                                                }
-                                            });
-                                        }
-                                        tickerItem.findViewById(R.id.source).setVisibility(View.VISIBLE);
-                                    }
-                                    tickerItem.setOnClickListener(new View.OnClickListener() {
-                                        @Override
-                                        public void onClick(View view) {
-                                            startActivity(new Intent(Intent.ACTION_VIEW, item.getLink()));
-                                        }
-                                    });
-                                    tickerContent.addView(tickerItem);
-                                }
-                                ((TextView) findViewById(R.id.feedTitle)).setText(feed.getTitle());
-                                ((TextView) findViewById(R.id.refreshTime)).setText(new SimpleDateFormat(DATE_FORMAT + " " + TIME_FORMAT).format(new Date()));
+                        if (all) {
+                            // every source is loaded concurrently by the loader
+                            final List<RSSItem> items = aggregator.load();
+                            scheduler.succeeded(uri, items);
+                            if (merge)
+                                mergeItems(ALL_FEEDS_TITLE, items);
+                            else
+                                showItems(uri, ALL_FEEDS_TITLE, items);
+                        } else {
+                            final RSSFeed feed = cache.load(uri);
+                            scheduler.succeeded(uri, feed.getItems());
+                            if (feed != stale) {
+                                if (merge || stale != null)
+                                    mergeItems(feed.getTitle(), feed.getItems());
+                                else
+                                    showItems(uri, feed.getTitle(), feed.getItems());
+                                writeSnapshot(uri, feed);
                             }
-                        });
-                        ticker.scrollTo(0, 0);
-                        fadeOut(findViewById(R.id.refreshContainer), 500, new Runnable() {
-                            @Override
-                            public void run() {
-                                fadeIn(ticker, 500, null);
-                            }
-                        });
-                        if (!tickerThread.isAlive())
-                            tickerThread.start();
-                        startTicker();
+                        }
                     } catch (Exception e) { // TODO: better error handling
+                        scheduler.failed(uri);
                         e.printStackTrace();
                     }
                     feedUpdating = false;
@@ -277,55 +388,162 @@ public class MainActivity extends Activity {
         }
     }
 
-    private void stopTicker() {
-        tickerActive = false;
-        if (tickerResume != null) {
-            tickerResume.interrupt();
-            tickerResume = null;
-        }
-    }
-
-    private void startTicker() {
-        (tickerResume = new Thread() {
+    /**
+     * Show the articles of another feed. Called on a worker thread, which
+     * prepares the articles, so the main thread only binds text.
+     */
+    private void showItems(final String uri, final String title, final List<RSSItem> feedItems) {
+        final List<Article> articles = Articles.prepare(feedItems, thumbnailHeight);
+        shownItems = feedItems;
+        shownArticles = articles;
+        final String refreshTime = new SimpleDateFormat(DATE_FORMAT + " " + TIME_FORMAT).format(new Date());
+        ThreadUtil.runOnUiThread(new Runnable() {
             @Override
             public void run() {
-                try {
-                    sleep(1500);
-                } catch (InterruptedException e) {
-                    return;
-                }
-                if (checkTickerEnd()) {
-                    resetTicker();
-                    run();
-                } else
-                    tickerActive = true;
+                shownUri = uri;
+                setTickerArticles(articles, false);
+                ((TextView) findViewById(R.id.feedTitle)).setText(title);
+                ((TextView) findViewById(R.id.refreshTime)).setText(refreshTime);
             }
-        }).start();
-    }
-
-    // getMaxScroll doesn't work in this situation
-    private boolean checkTickerEnd() {
-        return ticker.getScrollX() >= (tickerContent.getWidth() - getWindow().getDecorView().getWidth());
+        });
+        fadeOut(findViewById(R.id.refreshContainer), 500, new Runnable() {
+            @Override
+            public void run() {
+                fadeIn(tickerView, 500, null);
+            }
+        });
+        ThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                stopTicker();
+                startTicker();
+            }
+        });
     }
 
-    private void resetTicker() {
+    /**
+     * Replace the shown articles while the ticker keeps scrolling, keeping the
+     * first visible article in place. Called on a worker thread like
+     * {@link #showItems}. Only the added and changed items are prepared again;
+     * the articles of the others are reused, so the ticker keeps their views
+     * or tiles.
+     */
+    private void mergeItems(final String title, final List<RSSItem> feedItems) {
+        RSSDiff diff = RSSDiff.compare(shownItems, feedItems);
+        List<Article> updated = Articles.update(shownItems, shownArticles, feedItems, diff, thumbnailHeight);
+        // the ticker is left alone if every article has been reused in place
+        final List<Article> articles = updated == shownArticles ? null : updated;
+        shownItems = feedItems;
+        shownArticles = updated;
+        final String refreshTime = new SimpleDateFormat(DATE_FORMAT + " " + TIME_FORMAT).format(new Date());
         ThreadUtil.runOnUiThread(new Runnable() {
             @Override
             public void run() {
-                ticker.smoothScrollTo(0, 0);
+                if (articles != null)
+                    setTickerArticles(articles, true);
+                ((TextView) findViewById(R.id.feedTitle)).setText(title);
+                ((TextView) findViewById(R.id.refreshTime)).setText(refreshTime);
             }
         });
     }
 
+    /**
+     * Hands the articles to the ticker which suits their number. Switching
+     * tickers starts the other one from its first article in the same place.
+     */
+    private void setTickerArticles(List<Article> articles, boolean keepPosition) {
+        Ticker next = articles.size() > RASTER_MAX_ARTICLES ? marqueeTicker : rasterTicker;
+        if (next != ticker) {
+            int visibility = tickerView.getVisibility();
+            stopTicker();
+            tickerView.clearAnimation();
+            tickerView.setVisibility(View.GONE);
+            if (ticker == rasterTicker)
+                rasterTicker.setArticles(Collections.<Article>emptyList(), false);
+            else
+                tickerAdapter.setArticles(Collections.<Article>emptyList());
+            ticker = next;
+            tickerView = (View) next;
+            tickerView.setVisibility(visibility);
+            keepPosition = false;
+            if (visibility == View.VISIBLE)
+                startTicker();
+        }
+        if (ticker == rasterTicker)
+            rasterTicker.setArticles(articles, keepPosition);
+        else {
+            tickerAdapter.setArticles(articles);
+            if (!keepPosition)
+                marqueeTicker.rewind();
+        }
+    }
+
+    private File snapshotFile(String uri) {
+        return new File(getFilesDir(), "snapshot-" + Integer.toHexString(uri.hashCode()));
+    }
+
+    /**
+     * Returns the snapshot of the specified feed or null if there is none. The
+     * feed is attached to its validators, so an unchanged feed is not shown
+     * twice.
+     */
+    private RSSFeed readSnapshot(String uri) {
+        try {
+            RSSFeed feed = RSSSnapshot.read(uri, snapshotFile(uri));
+            if (feed != null) {
+                validators.restore(uri, feed);
+                snapshotFeeds.put(uri, feed);
+            }
+            return feed;
+        } catch (IOException ignored) { // missing or outdated snapshot
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of the specified feed unless it has been read or
+     * written already. Cache hits and unchanged responses return the same
+     * feed object, so only newly parsed feeds are written.
+     */
+    private void writeSnapshot(String uri, RSSFeed feed) {
+        if (snapshotFeeds.get(uri) == feed)
+            return;
+        try {
+            RSSSnapshot.write(uri, feed, snapshotFile(uri));
+            snapshotFeeds.put(uri, feed);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write snapshot of " + uri, e);
+        }
+    }
+
+    private void stopTicker() {
+        ThreadUtil.mainThreadHandler.removeCallbacks(resumeTicker);
+        ticker.stop();
+    }
+
+    private void startTicker() {
+        ThreadUtil.mainThreadHandler.postDelayed(resumeTicker, TICKER_RESUME_MILLIS);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        loader.stop();
+        thumbnails.shutdown();
+    }
+
     @Override
     public void onPause() {
         super.onPause();
+        ThreadUtil.mainThreadHandler.removeCallbacks(poll);
         stopTicker();
     }
 
     @Override
     public void onResume() {
         super.onResume();
+        ThreadUtil.mainThreadHandler.removeCallbacks(poll);
+        ThreadUtil.mainThreadHandler.postDelayed(poll, POLL_CHECK_MAX_MILLIS);
         startTicker();
     }
 
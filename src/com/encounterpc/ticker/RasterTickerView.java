@@ -0,0 +1,377 @@
+package com.encounterpc.ticker;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.net.Uri;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.animation.AnimationUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ticker which draws its articles from bitmap tiles instead of a view per
+ * article. The articles are laid out and rendered into tiles on a background
+ * thread; a frame only draws the tiles around the viewport at the current
+ * offset. Only the tiles near the viewport are kept, so the memory used does
+ * not grow with the number of articles. When the articles change, the tile
+ * grid moves along with the first visible article, so that its tiles are
+ * kept if the articles on them have not changed. Taps are mapped back to
+ * articles through the offsets of the strip layout.
+ */
+public class RasterTickerView extends View implements Ticker {
+    interface OnItemClickListener {
+        /**
+         * An article has been tapped.
+         *
+         * @param source true if its source has been tapped
+         */
+        void onItemClick(Article article, boolean source);
+    }
+
+    private final static int TILE_WIDTH = 512;
+
+    private final ScrollEngine engine = new ScrollEngine();
+
+    /**
+     * Started, but the strip fits the view, so no frames are drawn until it
+     * does not. Volatile like the running flag of the engine, since stop() may
+     * be called from any thread.
+     */
+    private volatile boolean idle;
+    private final int touchSlop;
+    private OnEndListener onEndListener;
+    private OnItemClickListener onItemClickListener;
+
+    private TickerRasterizer rasterizer;
+    private Thumbnails thumbnails;
+    private TickerStrip.Style style;
+    private List<Article> articles = Collections.emptyList();
+    private boolean keepPosition;
+
+    private TickerStrip strip;
+    private Bitmap[] tiles = new Bitmap[0];
+    private boolean[] requested = new boolean[0];
+
+    /**
+     * Tiles which are still drawn while they are rendered again.
+     */
+    private boolean[] stale = new boolean[0];
+
+    /**
+     * Left edge of the first tile in the strip, between -TILE_WIDTH
+     * (exclusive) and 0.
+     */
+    private int origin;
+    private int offset;
+
+    private float downX;
+    private float lastX;
+    private boolean dragging;
+
+    private final TickerRasterizer.Callback callback = new TickerRasterizer.Callback() {
+        @Override
+        public void onLayout(TickerStrip strip) {
+            if (rasterizer != null)
+                setStrip(strip);
+        }
+
+        @Override
+        public void onTile(TickerStrip strip, int tile, Bitmap bitmap) {
+            if (strip != RasterTickerView.this.strip) {
+                recycle(bitmap);
+                return;
+            }
+            if (tiles[tile] != null)
+                recycle(tiles[tile]);
+            tiles[tile] = bitmap;
+            invalidate();
+        }
+
+        @Override
+        public void onThumbnail(Uri uri, Bitmap bitmap) {
+            if (strip == null)
+                return;
+            // render the tiles of the articles with the thumbnail again
+            for (int i = 0, size = strip.size(); i < size; i++) {
+                if (!uri.equals(strip.articles.get(i).thumbnail))
+                    continue;
+                int last = Math.min((strip.getStart(i + 1) - 1 - origin) / TILE_WIDTH, tiles.length - 1);
+                for (int tile = (strip.getStart(i) - origin) / TILE_WIDTH; tile <= last; tile++) {
+                    requested[tile] = false;
+                    stale[tile] = tiles[tile] != null;
+                }
+            }
+            invalidate();
+        }
+    };
+
+    public RasterTickerView(Context context) {
+        this(context, null);
+    }
+
+    public RasterTickerView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public RasterTickerView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    }
+
+    /**
+     * Shows the specified articles. Must be called on the main thread.
+     *
+     * @param keepPosition true to keep the first visible article in place if
+     *                     it is still shown, false to start from the beginning
+     */
+    void setArticles(List<Article> articles, boolean keepPosition) {
+        this.articles = articles;
+        this.keepPosition = keepPosition;
+        relayout();
+    }
+
+    /**
+     * Draws the thumbnails of the articles from the specified thumbnails.
+     * Must be called before the view is attached.
+     */
+    void setThumbnails(Thumbnails thumbnails) {
+        this.thumbnails = thumbnails;
+    }
+
+    void setOnItemClickListener(OnItemClickListener listener) {
+        onItemClickListener = listener;
+    }
+
+    @Override
+    public void setSpeed(float pixelsPerSecond) {
+        engine.setSpeed(pixelsPerSecond);
+    }
+
+    @Override
+    public void setOnEndListener(OnEndListener listener) {
+        onEndListener = listener;
+    }
+
+    @Override
+    public void start() {
+        idle = false;
+        engine.start();
+        invalidate();
+    }
+
+    @Override
+    public void stop() {
+        idle = false;
+        engine.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return engine.isRunning() || idle;
+    }
+
+    @Override
+    public boolean isAtEnd() {
+        return offset >= getMaxOffset();
+    }
+
+    @Override
+    public void rewind() {
+        offset = 0;
+        invalidate();
+    }
+
+    private int getMaxOffset() {
+        return strip == null ? 0 : Math.max(0, strip.getWidth() - getWidth());
+    }
+
+    private void relayout() {
+        if (rasterizer != null && style != null)
+            rasterizer.layout(articles, style, strip);
+    }
+
+    private void setStrip(TickerStrip next) {
+        // distance by which the first visible article moves
+        int dx = 0;
+        if (keepPosition && strip != null) {
+            // anchor the offset on the first visible article
+            int index = strip.indexAt(offset);
+            int anchor = index < 0 ? -1 : next.indexOf(strip.articles.get(index));
+            if (anchor >= 0)
+                dx = next.getStart(anchor) - strip.getStart(index);
+            offset += dx;
+        } else
+            offset = 0;
+
+        // move the tile grid along, so that tiles of unchanged articles fit
+        int moved = origin + dx;
+        int shift = moved > 0 ? (moved + TILE_WIDTH - 1) / TILE_WIDTH : -(-moved / TILE_WIDTH);
+        int nextOrigin = moved - shift * TILE_WIDTH;
+        int count = (next.getWidth() - nextOrigin + TILE_WIDTH - 1) / TILE_WIDTH;
+        Bitmap[] nextTiles = new Bitmap[count];
+        boolean[] nextStale = new boolean[count];
+        for (int i = 0; i < tiles.length; i++) {
+            int tile = i + shift;
+            if (tiles[i] != null && strip != null && tile >= 0 && tile < count
+                    && next.drawsLike(strip, nextOrigin + tile * TILE_WIDTH, TILE_WIDTH, dx)) {
+                nextTiles[tile] = tiles[i];
+                nextStale[tile] = stale[i];
+                tiles[i] = null;
+            }
+        }
+        releaseTiles();
+        strip = next;
+        origin = nextOrigin;
+        tiles = nextTiles;
+        requested = new boolean[count];
+        stale = nextStale;
+        offset = Math.max(0, Math.min(offset, getMaxOffset()));
+        keepPosition = true;
+        startIfScrollable();
+        invalidate();
+    }
+
+    /**
+     * Starts scrolling if the ticker is idle and the strip no longer fits.
+     */
+    private void startIfScrollable() {
+        if (idle && getMaxOffset() > 0) {
+            idle = false;
+            engine.start();
+        }
+    }
+
+    private void releaseTiles() {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null)
+                recycle(tiles[i]);
+            tiles[i] = null;
+            requested[i] = false;
+            stale[i] = false;
+        }
+    }
+
+    private void recycle(Bitmap bitmap) {
+        if (rasterizer != null)
+            rasterizer.recycle(bitmap);
+        else
+            bitmap.recycle();
+    }
+
+    private void request(int tile) {
+        if (tile < tiles.length && !requested[tile]) {
+            requested[tile] = true;
+            stale[tile] = false;
+            rasterizer.render(strip, tile, origin + tile * TILE_WIDTH);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        rasterizer = new TickerRasterizer(TILE_WIDTH, callback);
+        rasterizer.setThumbnails(thumbnails);
+        relayout();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stop();
+        releaseTiles();
+        strip = null;
+        origin = 0;
+        rasterizer.shutdown();
+        rasterizer = null;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (h > 0 && (style == null || style.height != h)) {
+            style = new TickerStrip.Style(getResources().getDisplayMetrics(), h);
+            relayout();
+        }
+        startIfScrollable();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (strip == null)
+            return;
+
+        if (engine.isRunning())
+            offset = Math.min(offset + engine.step(AnimationUtils.currentAnimationTimeMillis()), getMaxOffset());
+
+        int first = (offset - origin) / TILE_WIDTH;
+        int last = (offset - origin + getWidth() - 1) / TILE_WIDTH;
+        for (int i = first; i <= last && i < tiles.length; i++) {
+            if (tiles[i] != null)
+                canvas.drawBitmap(tiles[i], origin + i * TILE_WIDTH - offset, 0, null);
+            if (tiles[i] == null || stale[i])
+                request(i);
+        }
+        // render the next tile before it scrolls into view
+        request(last + 1);
+        // keep one tile on either side, so that dragging back does not flicker
+        for (int i = 0; i < tiles.length; i++) {
+            if ((i < first - 1 || i > last + 1) && (tiles[i] != null || requested[i])) {
+                if (tiles[i] != null)
+                    recycle(tiles[i]);
+                tiles[i] = null;
+                requested[i] = false;
+                stale[i] = false;
+            }
+        }
+
+        if (!engine.isRunning())
+            return;
+        if (getMaxOffset() == 0) {
+            // nothing to scroll, so wait for a wider strip instead of drawing frames
+            engine.stop();
+            idle = true;
+        } else if (isAtEnd()) {
+            engine.stop();
+            if (onEndListener != null)
+                onEndListener.onEnd(this);
+        } else
+            invalidate(); // request the next frame
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = lastX = event.getX();
+                dragging = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (!dragging && Math.abs(event.getX() - downX) > touchSlop) {
+                    dragging = true;
+                    lastX = event.getX();
+                }
+                if (dragging) {
+                    offset = Math.max(0, Math.min(offset + (int) (lastX - event.getX()), getMaxOffset()));
+                    lastX = event.getX();
+                    invalidate();
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (!dragging && strip != null && onItemClickListener != null) {
+                    int x = offset + (int) event.getX();
+                    int index = strip.indexAt(x);
+                    if (index >= 0)
+                        onItemClickListener.onItemClick(strip.articles.get(index), strip.isSourceAt(index, x));
+                }
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.encounterpc.ticker;
+
+/**
+ * Converts elapsed frame time into whole-pixel scroll steps at a constant
+ * speed. Fractions of a pixel are carried over to the next frame, so the
+ * average speed is exact even if frames arrive late. The engine allocates
+ * nothing per frame.
+ */
+final class ScrollEngine {
+    /**
+     * Longest frame gap which is scrolled through, so that the ticker does not
+     * jump after it has not been drawn for a while.
+     */
+    private final static long MAX_FRAME_MILLIS = 100;
+
+    private volatile boolean running;
+    private float pixelsPerSecond;
+    private long lastFrame = -1;
+    private float remainder;
+
+    void setSpeed(float pixelsPerSecond) {
+        this.pixelsPerSecond = pixelsPerSecond;
+    }
+
+    float getSpeed() {
+        return pixelsPerSecond;
+    }
+
+    /**
+     * Start scrolling with the next frame. May be called from any thread.
+     */
+    void start() {
+        lastFrame = -1;
+        running = true;
+    }
+
+    /**
+     * Stop scrolling. May be called from any thread.
+     */
+    void stop() {
+        running = false;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of pixels to scroll for the frame at the specified
+     * time. The first frame after {@link #start()} only records its time.
+     */
+    int step(long frameTimeMillis) {
+        if (!running) {
+            return 0;
+        }
+        if (lastFrame < 0) {
+            lastFrame = frameTimeMillis;
+            return 0;
+        }
+
+        long elapsed = Math.min(frameTimeMillis - lastFrame, MAX_FRAME_MILLIS);
+        lastFrame = frameTimeMillis;
+        remainder += pixelsPerSecond * elapsed / 1000f;
+        int pixels = (int) remainder;
+        remainder -= pixels;
+        return pixels;
+    }
+}
@@ -3,11 +3,19 @@ package com.encounterpc.ticker;
 import android.os.Handler;
 import android.os.Looper;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 
 public class ThreadUtil {
     public static final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
+    public static final Executor mainThreadExecutor = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runOnUiThread(runnable);
+        }
+    };
+
     public static boolean checkIfMainThread() {
         return Looper.myLooper() == Looper.getMainLooper();
     }
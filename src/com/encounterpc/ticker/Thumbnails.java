@@ -0,0 +1,204 @@
+package com.encounterpc.ticker;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads article thumbnails with a fixed number of threads. Decoded thumbnails
+ * are kept in a memory LRU bounded by their bitmap sizes, and downloaded
+ * images in a disk LRU, so a refresh does not download the same thumbnails
+ * again. Only images which decode are written to the disk LRU. Images are
+ * subsampled while they are decoded, so that no bitmap is much larger than
+ * it is shown.
+ */
+final class Thumbnails {
+    interface Callback {
+        /**
+         * The thumbnail has been loaded. Called on the main thread.
+         */
+        void onThumbnail(Uri uri, Bitmap bitmap);
+    }
+
+    private final static String TAG = "Thumbnails";
+
+    private final static int CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    private final static int READ_TIMEOUT_MILLIS = 30 * 1000;
+
+    /**
+     * Larger downloads are not thumbnails and are dropped.
+     */
+    private final static int MAX_DOWNLOAD_BYTES = 512 * 1024;
+
+    private final int height;
+    private final LruCache<Uri, Bitmap> memory;
+    private final DiskCache disk;
+    private final ExecutorService executor;
+
+    /**
+     * Callbacks of the thumbnails which are being loaded.
+     */
+    private final Map<Uri, List<Callback>> pending = new HashMap<Uri, List<Callback>>();
+
+    /**
+     * @param height    height in pixels at which thumbnails are shown
+     * @param directory directory of the disk cache
+     */
+    Thumbnails(int height, int memoryBytes, File directory, long diskBytes, int threads) {
+        this.height = height;
+        memory = new LruCache<Uri, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(Uri uri, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        };
+        disk = new DiskCache(directory, diskBytes);
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Thumbnail loader");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the thumbnail if it is in memory, null otherwise. May be called
+     * from any thread.
+     */
+    Bitmap get(Uri uri) {
+        return memory.get(uri);
+    }
+
+    /**
+     * Loads the thumbnail unless it is in memory or being loaded already, and
+     * notifies the callback once it has been loaded. Thumbnails which cannot
+     * be loaded are not reported. May be called from any thread.
+     */
+    void prefetch(final Uri uri, Callback callback) {
+        if (memory.get(uri) != null)
+            return;
+        synchronized (pending) {
+            List<Callback> callbacks = pending.get(uri);
+            if (callbacks != null) {
+                if (!callbacks.contains(callback))
+                    callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<Callback>(1);
+            callbacks.add(callback);
+            pending.put(uri, callbacks);
+        }
+        Runnable load = new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = load(uri);
+                final List<Callback> callbacks;
+                synchronized (pending) {
+                    callbacks = pending.remove(uri);
+                }
+                if (bitmap == null)
+                    return;
+                memory.put(uri, bitmap);
+                ThreadUtil.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Callback callback : callbacks)
+                            callback.onThumbnail(uri, bitmap);
+                    }
+                });
+            }
+        };
+        try {
+            executor.execute(load);
+        } catch (RejectedExecutionException e) { // shut down
+            synchronized (pending) {
+                pending.remove(uri);
+            }
+        }
+    }
+
+    private Bitmap load(Uri uri) {
+        String key = uri.toString();
+        byte[] bytes = disk.get(key);
+        if (bytes != null) {
+            Bitmap bitmap = decode(bytes);
+            if (bitmap != null)
+                return bitmap;
+            // download the image again instead of failing on every load
+            disk.remove(key);
+        }
+        try {
+            bytes = download(key);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot download thumbnail " + key, e);
+            return null;
+        }
+        if (bytes == null)
+            return null;
+        Bitmap bitmap = decode(bytes);
+        if (bitmap != null)
+            disk.put(key, bytes);
+        return bitmap;
+    }
+
+    private static byte[] download(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK
+                    || connection.getContentLength() > MAX_DOWNLOAD_BYTES)
+                return null;
+            InputStream in = connection.getInputStream();
+            try {
+                return DiskCache.readFully(in, connection.getContentLength(), MAX_DOWNLOAD_BYTES);
+            } finally {
+                in.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Decodes the image with the largest power-of-two subsampling which keeps
+     * it at least as high as it is shown.
+     */
+    private Bitmap decode(byte[] bytes) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outHeight <= 0)
+            return null;
+        int sampleSize = 1;
+        while (options.outHeight / (sampleSize * 2) >= height)
+            sampleSize *= 2;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        memory.evictAll();
+    }
+}
@@ -0,0 +1,43 @@
+package com.encounterpc.ticker;
+
+/**
+ * A view which scrolls its articles by itself.
+ */
+interface Ticker {
+    interface OnEndListener {
+        /**
+         * The ticker has stopped because it has scrolled to the end of its
+         * content.
+         */
+        void onEnd(Ticker ticker);
+    }
+
+    /**
+     * Sets the scroll speed in pixels per second.
+     */
+    void setSpeed(float pixelsPerSecond);
+
+    void setOnEndListener(OnEndListener listener);
+
+    /**
+     * Starts scrolling with the next frame. Must be called on the main thread.
+     */
+    void start();
+
+    /**
+     * Stops scrolling. May be called from any thread.
+     */
+    void stop();
+
+    boolean isRunning();
+
+    /**
+     * Returns true if the content is scrolled as far to the left as possible.
+     */
+    boolean isAtEnd();
+
+    /**
+     * Scrolls back to the first article. Must be called on the main thread.
+     */
+    void rewind();
+}
@@ -0,0 +1,151 @@
+package com.encounterpc.ticker;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binds prepared articles to ticker_article views. Views are reused by the
+ * marquee, so binding keeps the article in the view tags and shares one
+ * click listener between all views instead of allocating one per bind.
+ * Thumbnails are prefetched for the articles right after each bound one, so
+ * they are usually in memory when their articles scroll into view.
+ */
+final class TickerAdapter extends BaseAdapter {
+    /**
+     * Number of articles after a bound one whose thumbnails are prefetched.
+     */
+    private final static int PREFETCH_ARTICLES = 3;
+
+    private final Context context;
+    private final LayoutInflater inflater;
+    private final Thumbnails thumbnails;
+
+    /**
+     * Thumbnail views of all inflated articles, which are few because the
+     * marquee reuses them.
+     */
+    private final List<ImageView> thumbnailViews = new ArrayList<ImageView>();
+    private List<Article> articles = Collections.emptyList();
+
+    private final View.OnClickListener openLink = new View.OnClickListener() {
+        @Override
+        public void onClick(View view) {
+            Article article = (Article) view.getTag();
+            context.startActivity(new Intent(Intent.ACTION_VIEW, article.link));
+        }
+    };
+
+    private final View.OnClickListener openSource = new View.OnClickListener() {
+        @Override
+        public void onClick(View view) {
+            Article article = (Article) view.getTag();
+            context.startActivity(new Intent(Intent.ACTION_VIEW, article.sourceUrl));
+        }
+    };
+
+    private final Thumbnails.Callback showThumbnail = new Thumbnails.Callback() {
+        @Override
+        public void onThumbnail(Uri uri, Bitmap bitmap) {
+            for (int i = 0, size = thumbnailViews.size(); i < size; i++) {
+                ImageView thumbnail = thumbnailViews.get(i);
+                if (uri.equals(thumbnail.getTag()))
+                    thumbnail.setImageBitmap(bitmap);
+            }
+        }
+    };
+
+    TickerAdapter(Context context, Thumbnails thumbnails) {
+        this.context = context;
+        this.thumbnails = thumbnails;
+        inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+    }
+
+    /**
+     * Shows the specified articles. Must be called on the main thread.
+     */
+    void setArticles(List<Article> articles) {
+        this.articles = articles;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return articles.size();
+    }
+
+    @Override
+    public Article getItem(int position) {
+        return articles.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View tickerItem = convertView;
+        if (tickerItem == null) {
+            tickerItem = inflater.inflate(R.layout.ticker_article, parent, false);
+            thumbnailViews.add((ImageView) tickerItem.findViewById(R.id.thumbnail));
+        }
+        bind(tickerItem, articles.get(position));
+        for (int i = position + 1, end = Math.min(position + PREFETCH_ARTICLES, articles.size() - 1); i <= end; i++) {
+            Article next = articles.get(i);
+            if (next.thumbnail != null)
+                thumbnails.prefetch(next.thumbnail, showThumbnail);
+        }
+        return tickerItem;
+    }
+
+    private void bind(View tickerItem, Article article) {
+        TextView source = (TextView) tickerItem.findViewById(R.id.source);
+        if (article.source != null) {
+            source.setText(article.source);
+            source.setVisibility(View.VISIBLE);
+        } else
+            source.setVisibility(View.GONE);
+        source.setTag(article);
+        source.setOnClickListener(article.sourceUrl != null ? openSource : null);
+        source.setClickable(article.sourceUrl != null);
+        ((TextView) tickerItem.findViewById(R.id.content)).setText(article.title);
+        ((TextView) tickerItem.findViewById(R.id.time)).setText(article.time);
+        ImageView thumbnail = (ImageView) tickerItem.findViewById(R.id.thumbnail);
+        thumbnail.setTag(article.thumbnail);
+        if (article.thumbnail != null) {
+            ViewGroup.LayoutParams params = thumbnail.getLayoutParams();
+            if (params.width != article.thumbnailWidth || params.height != article.thumbnailHeight) {
+                params.width = article.thumbnailWidth;
+                params.height = article.thumbnailHeight;
+                thumbnail.setLayoutParams(params);
+            }
+            Bitmap bitmap = thumbnails.get(article.thumbnail);
+            if (bitmap != null)
+                thumbnail.setImageBitmap(bitmap);
+            else {
+                thumbnail.setImageDrawable(null);
+                thumbnails.prefetch(article.thumbnail, showThumbnail);
+            }
+            thumbnail.setVisibility(View.VISIBLE);
+        } else {
+            thumbnail.setImageDrawable(null);
+            thumbnail.setVisibility(View.GONE);
+        }
+        tickerItem.setTag(article);
+        tickerItem.setOnClickListener(article.link != null ? openLink : null);
+        tickerItem.setClickable(article.link != null);
+    }
+}
@@ -0,0 +1,388 @@
+package com.encounterpc.ticker;
+
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
+import android.widget.Adapter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ticker which shows the views of an adapter side by side and scrolls them by
+ * itself, one step per drawn frame. Only the views on screen, plus a small
+ * margin on either side, are attached. Views which scroll out of the margin
+ * are detached and rebound to the articles which scroll in, so the number of
+ * views does not depend on the number of articles. When the data changes,
+ * views are only rebound if their item is no longer the same object, so the
+ * adapter must hand out new items for changed data.
+ */
+public class TickerMarqueeView extends ViewGroup implements Ticker {
+    /**
+     * Width beyond either edge in which views are kept attached.
+     */
+    private final static int MARGIN_DIP = 50;
+
+    private final ScrollEngine engine = new ScrollEngine();
+    private final int margin;
+    private final int touchSlop;
+    private OnEndListener onEndListener;
+
+    private Adapter adapter;
+    private final List<View> scrap = new ArrayList<View>();
+
+    /**
+     * Item each view has been bound to.
+     */
+    private final Map<View, Object> boundItems = new HashMap<View, Object>();
+
+    /**
+     * Views detached by a reset which are still bound, by their items.
+     */
+    private final Map<Object, View> bound = new IdentityHashMap<Object, View>();
+
+    /**
+     * Adapter position of the first attached view.
+     */
+    private int firstPosition;
+
+    /**
+     * Item of the first attached view, to find it again when the data changes.
+     */
+    private Object firstItem;
+
+    private float downX;
+    private float lastX;
+    private boolean dragging;
+
+    private final DataSetObserver observer = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            // keep the first attached article in place if it is still there
+            int position = Math.max(0, Math.min(firstPosition, adapter.getCount() - 1));
+            if (firstItem != null) {
+                for (int i = 0, count = adapter.getCount(); i < count; i++) {
+                    if (firstItem.equals(adapter.getItem(i))) {
+                        position = i;
+                        break;
+                    }
+                }
+            }
+            int left = getChildCount() > 0 ? getChildAt(0).getLeft() : getPaddingLeft();
+            reset(position, left);
+        }
+
+        @Override
+        public void onInvalidated() {
+            reset(0, getPaddingLeft());
+        }
+    };
+
+    public TickerMarqueeView(Context context) {
+        this(context, null);
+    }
+
+    public TickerMarqueeView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public TickerMarqueeView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        margin = (int) (MARGIN_DIP * context.getResources().getDisplayMetrics().density + 0.5f);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    }
+
+    public void setAdapter(Adapter adapter) {
+        if (this.adapter != null)
+            this.adapter.unregisterDataSetObserver(observer);
+        this.adapter = adapter;
+        scrap.clear();
+        boundItems.clear();
+        removeAllViewsInLayout();
+        if (adapter != null)
+            adapter.registerDataSetObserver(observer);
+        reset(0, getPaddingLeft());
+    }
+
+    @Override
+    public void setSpeed(float pixelsPerSecond) {
+        engine.setSpeed(pixelsPerSecond);
+    }
+
+    @Override
+    public void setOnEndListener(OnEndListener listener) {
+        onEndListener = listener;
+    }
+
+    @Override
+    public void start() {
+        engine.start();
+        invalidate();
+    }
+
+    @Override
+    public void stop() {
+        engine.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return engine.isRunning();
+    }
+
+    @Override
+    public boolean isAtEnd() {
+        int count = getChildCount();
+        return count == 0 || firstPosition + count == adapter.getCount()
+                && getChildAt(count - 1).getRight() <= getWidth() - getPaddingRight();
+    }
+
+    @Override
+    public void rewind() {
+        reset(0, getPaddingLeft());
+    }
+
+    /**
+     * Returns true if the first article is not in its initial place.
+     */
+    private boolean isScrolled() {
+        return getChildCount() > 0 && (firstPosition > 0 || getChildAt(0).getLeft() < getPaddingLeft());
+    }
+
+    /**
+     * Detaches all views and attaches them again, starting with the specified
+     * position at the specified left edge. Views whose items are still there
+     * are attached again without being rebound.
+     */
+    private void reset(int position, int left) {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            Object item = boundItems.get(child);
+            if (item != null && !bound.containsKey(item))
+                bound.put(item, child);
+            else
+                scrap.add(child);
+        }
+        removeAllViewsInLayout();
+        firstPosition = position;
+        fillRight(left);
+        scrollContent(0);
+        scrap.addAll(bound.values());
+        bound.clear();
+    }
+
+    private View obtainView(int position) {
+        Object item = adapter.getItem(position);
+        View child = item == null ? null : bound.remove(item);
+        if (child != null)
+            return child;
+        View convertView = scrap.isEmpty() ? null : scrap.remove(scrap.size() - 1);
+        child = adapter.getView(position, convertView, this);
+        if (convertView != null && child != convertView) {
+            boundItems.remove(convertView);
+            scrap.add(convertView);
+        }
+        boundItems.put(child, item);
+        return child;
+    }
+
+    private View addChild(int position, int index) {
+        View child = obtainView(position);
+        LayoutParams params = child.getLayoutParams();
+        if (params == null)
+            params = generateDefaultLayoutParams();
+        addViewInLayout(child, index, params, true);
+        measureChild(child);
+        return child;
+    }
+
+    private void measureChild(View child) {
+        int height = Math.max(0, getHeight() - getPaddingTop() - getPaddingBottom());
+        child.measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+    }
+
+    private void layoutChild(View child, int left) {
+        child.layout(left, getPaddingTop(), left + child.getMeasuredWidth(), getPaddingTop() + child.getMeasuredHeight());
+    }
+
+    /**
+     * Attaches views after the last attached view, whose right edge is the
+     * specified one, until the margin right of the view is filled.
+     */
+    private void fillRight(int right) {
+        if (adapter == null)
+            return;
+        int count = adapter.getCount();
+        int position = firstPosition + getChildCount();
+        while (right < getWidth() + margin && position < count) {
+            View child = addChild(position++, getChildCount());
+            layoutChild(child, right);
+            right += child.getMeasuredWidth();
+        }
+    }
+
+    /**
+     * Attaches views before the first attached view until the margin left of
+     * the view is filled.
+     */
+    private void fillLeft() {
+        int left = getChildAt(0).getLeft();
+        while (left > -margin && firstPosition > 0) {
+            View child = addChild(--firstPosition, 0);
+            left -= child.getMeasuredWidth();
+            layoutChild(child, left);
+        }
+    }
+
+    /**
+     * Detaches the views which are entirely outside the margins.
+     */
+    private void recycleOffscreen() {
+        while (getChildCount() > 1 && getChildAt(0).getRight() < -margin) {
+            View child = getChildAt(0);
+            removeViewInLayout(child);
+            scrap.add(child);
+            firstPosition++;
+        }
+        while (getChildCount() > 1 && getChildAt(getChildCount() - 1).getLeft() > getWidth() + margin) {
+            View child = getChildAt(getChildCount() - 1);
+            removeViewInLayout(child);
+            scrap.add(child);
+        }
+    }
+
+    private void offsetChildren(int dx) {
+        for (int i = 0, count = getChildCount(); i < count; i++)
+            getChildAt(i).offsetLeftAndRight(dx);
+    }
+
+    /**
+     * Moves the content to the left by the specified number of pixels, but not
+     * beyond the first or the last article.
+     */
+    private void scrollContent(int dx) {
+        if (getChildCount() == 0) {
+            firstItem = null;
+            invalidate();
+            return;
+        }
+
+        offsetChildren(-dx);
+        fillRight(getChildAt(getChildCount() - 1).getRight());
+        fillLeft();
+
+        int correction = 0;
+        int last = getChildCount() - 1;
+        int end = getWidth() - getPaddingRight();
+        if (firstPosition + last + 1 == adapter.getCount() && getChildAt(last).getRight() < end)
+            correction = end - getChildAt(last).getRight();
+        if (firstPosition == 0 && getChildAt(0).getLeft() + correction > getPaddingLeft())
+            correction = getPaddingLeft() - getChildAt(0).getLeft();
+        if (correction != 0) {
+            offsetChildren(correction);
+            fillLeft();
+            fillRight(getChildAt(getChildCount() - 1).getRight());
+        }
+
+        recycleOffscreen();
+        firstItem = adapter.getItem(firstPosition);
+        invalidate();
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        // rebound views may have changed their widths
+        int left = getChildCount() > 0 ? getChildAt(0).getLeft() : getPaddingLeft();
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            View child = getChildAt(i);
+            measureChild(child);
+            layoutChild(child, left);
+            left += child.getMeasuredWidth();
+        }
+        if (getChildCount() == 0)
+            fillRight(left);
+        scrollContent(0);
+    }
+
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (!engine.isRunning())
+            return;
+
+        int dx = engine.step(AnimationUtils.currentAnimationTimeMillis());
+        if (dx != 0)
+            scrollContent(dx);
+        if (isAtEnd()) {
+            engine.stop();
+            if (isScrolled() && onEndListener != null)
+                onEndListener.onEnd(this);
+        } else
+            invalidate(); // request the next frame
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = lastX = event.getX();
+                dragging = false;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (!dragging && Math.abs(event.getX() - downX) > touchSlop) {
+                    dragging = true;
+                    lastX = event.getX();
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                break;
+        }
+        return dragging;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = lastX = event.getX();
+                dragging = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (!dragging && Math.abs(event.getX() - downX) > touchSlop) {
+                    dragging = true;
+                    lastX = event.getX();
+                }
+                if (dragging) {
+                    int dx = (int) (lastX - event.getX());
+                    scrollContent(dx);
+                    lastX -= dx;
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                dragging = false;
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.encounterpc.ticker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lays out ticker strips and renders their tiles on a background thread.
+ * Results are delivered on the main thread. Tile bitmaps are pooled, so
+ * scrolling through a strip allocates no new bitmaps once the pool is warm.
+ */
+final class TickerRasterizer {
+    interface Callback extends Thumbnails.Callback {
+        /**
+         * A strip has been laid out.
+         */
+        void onLayout(TickerStrip strip);
+
+        /**
+         * A tile of the specified strip has been rendered.
+         */
+        void onTile(TickerStrip strip, int tile, Bitmap bitmap);
+    }
+
+    private final static int POOL_SIZE = 8;
+
+    private final int tileWidth;
+    private final Callback callback;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Ticker rasterizer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final List<Bitmap> pool = new ArrayList<Bitmap>(POOL_SIZE);
+    private volatile Thumbnails thumbnails;
+
+    TickerRasterizer(int tileWidth, Callback callback) {
+        this.tileWidth = tileWidth;
+        this.callback = callback;
+    }
+
+    int getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * Draws thumbnails from the specified thumbnails, or none if it is null.
+     */
+    void setThumbnails(Thumbnails thumbnails) {
+        this.thumbnails = thumbnails;
+    }
+
+    /**
+     * Lays out the articles, reusing the layout of the articles which are
+     * also in the previous strip, which may be null.
+     */
+    void layout(final List<Article> articles, final TickerStrip.Style style, final TickerStrip previous) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final TickerStrip strip = TickerStrip.layout(articles, style, previous);
+                ThreadUtil.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onLayout(strip);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Renders the tile of the strip whose left edge is at the specified x
+     * coordinate.
+     */
+    void render(final TickerStrip strip, final int tile, final int left) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = obtain(strip.getHeight());
+                Canvas canvas = new Canvas(bitmap);
+                canvas.drawColor(Color.BLACK);
+                strip.draw(canvas, left, tileWidth, thumbnails, callback);
+                ThreadUtil.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onTile(strip, tile, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns a tile bitmap which is no longer drawn to the pool.
+     */
+    void recycle(Bitmap bitmap) {
+        synchronized (pool) {
+            if (pool.size() < POOL_SIZE) {
+                pool.add(bitmap);
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    private Bitmap obtain(int height) {
+        synchronized (pool) {
+            while (!pool.isEmpty()) {
+                Bitmap bitmap = pool.remove(pool.size() - 1);
+                if (bitmap.getHeight() == height)
+                    return bitmap;
+                bitmap.recycle();
+            }
+        }
+        return Bitmap.createBitmap(tileWidth, height, Bitmap.Config.ARGB_8888);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        synchronized (pool) {
+            for (Bitmap bitmap : pool)
+                bitmap.recycle();
+            pool.clear();
+        }
+    }
+}
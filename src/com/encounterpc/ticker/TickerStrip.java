@@ -0,0 +1,296 @@
+package com.encounterpc.ticker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable horizontal layout of ticker articles for rasterization. Every
+ * article is laid out like ticker_article: its thumbnail if it has one, its
+ * time, its title and, if it has one, its source. The start offsets of the
+ * articles form an index which maps x coordinates back to articles.
+ */
+final class TickerStrip {
+    /**
+     * Paints and spacing of ticker_article. Paints are not thread-safe, so a
+     * style must only be used by one thread at a time.
+     */
+    static final class Style {
+        final TextPaint timePaint;
+        final TextPaint contentPaint;
+        final TextPaint sourcePaint;
+        final Paint thumbnailPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        final int padding;
+        final int sourcePaddingRight;
+        final int height;
+
+        Style(DisplayMetrics metrics, int height) {
+            timePaint = paint(metrics, 15, Color.rgb(0x00, 0xaa, 0xff));
+            contentPaint = paint(metrics, 18, Color.WHITE);
+            sourcePaint = paint(metrics, 15, Color.rgb(0x88, 0x88, 0x88));
+            padding = dp(metrics, 10);
+            sourcePaddingRight = dp(metrics, 20);
+            this.height = height;
+        }
+
+        private static TextPaint paint(DisplayMetrics metrics, float sizeDp, int color) {
+            TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, sizeDp, metrics));
+            paint.setColor(color);
+            return paint;
+        }
+
+        private static int dp(DisplayMetrics metrics, float dp) {
+            return (int) (TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, metrics) + 0.5f);
+        }
+
+        /**
+         * Returns the baseline which centers the text of the paint vertically.
+         */
+        float baseline(Paint paint) {
+            Paint.FontMetrics metrics = paint.getFontMetrics();
+            return (height - metrics.ascent - metrics.descent) / 2;
+        }
+    }
+
+    final List<Article> articles;
+    final Style style;
+
+    private final String[] times;
+    private final String[] titles;
+    private final String[] sources;
+
+    /**
+     * Start offsets of the articles, followed by the width of the strip.
+     */
+    private final int[] starts;
+
+    /**
+     * Start offsets of the thumbnails, -1 for articles without a thumbnail.
+     */
+    private final int[] thumbnailStarts;
+
+    /**
+     * Start offsets of the times.
+     */
+    private final int[] timeStarts;
+
+    /**
+     * Start offsets of the titles.
+     */
+    private final int[] contentStarts;
+
+    /**
+     * Start offsets of the sources, -1 for articles without a source.
+     */
+    private final int[] sourceStarts;
+
+    private TickerStrip(List<Article> articles, Style style) {
+        this.articles = articles;
+        this.style = style;
+        int size = articles.size();
+        times = new String[size];
+        titles = new String[size];
+        sources = new String[size];
+        starts = new int[size + 1];
+        thumbnailStarts = new int[size];
+        timeStarts = new int[size];
+        contentStarts = new int[size];
+        sourceStarts = new int[size];
+    }
+
+    /**
+     * Lays out the specified articles. This measures the text of all articles
+     * which are not in the previous strip, so it should not run on the main
+     * thread.
+     *
+     * @param previous strip whose articles are moved instead of measured
+     *                 again if they are the same objects, or null
+     */
+    static TickerStrip layout(List<Article> articles, Style style, TickerStrip previous) {
+        TickerStrip strip = new TickerStrip(articles, style);
+        Map<Article, Integer> laidOut = new IdentityHashMap<Article, Integer>();
+        if (previous != null && previous.style == style) {
+            for (int i = 0, size = previous.size(); i < size; i++)
+                laidOut.put(previous.articles.get(i), i);
+        }
+        // the marquee has a left padding, too
+        int x = style.padding;
+        for (int i = 0, size = articles.size(); i < size; i++) {
+            Article article = articles.get(i);
+            strip.starts[i] = x;
+            Integer index = laidOut.get(article);
+            if (index != null) {
+                x = strip.move(i, previous, index);
+                continue;
+            }
+            strip.times[i] = article.time.toUpperCase();
+            strip.titles[i] = article.title;
+            String source = article.source;
+            if (article.thumbnail != null) {
+                strip.thumbnailStarts[i] = x + style.padding;
+                x += style.padding + article.thumbnailWidth;
+            } else
+                strip.thumbnailStarts[i] = -1;
+            strip.timeStarts[i] = x;
+            x += style.padding + (int) Math.ceil(style.timePaint.measureText(strip.times[i]));
+            strip.contentStarts[i] = x;
+            x += style.padding + (int) Math.ceil(style.contentPaint.measureText(strip.titles[i]));
+            if (source != null) {
+                strip.sources[i] = source.toUpperCase();
+                strip.sourceStarts[i] = x;
+                x += style.padding + (int) Math.ceil(style.sourcePaint.measureText(strip.sources[i]))
+                        + style.sourcePaddingRight;
+            } else
+                strip.sourceStarts[i] = -1;
+        }
+        strip.starts[articles.size()] = x;
+        return strip;
+    }
+
+    /**
+     * Copies the layout of an article of another strip to the specified
+     * index, moved to its start offset there, and returns its end offset.
+     */
+    private int move(int i, TickerStrip from, int index) {
+        int dx = starts[i] - from.starts[index];
+        times[i] = from.times[index];
+        titles[i] = from.titles[index];
+        sources[i] = from.sources[index];
+        thumbnailStarts[i] = from.thumbnailStarts[index] < 0 ? -1 : from.thumbnailStarts[index] + dx;
+        timeStarts[i] = from.timeStarts[index] + dx;
+        contentStarts[i] = from.contentStarts[index] + dx;
+        sourceStarts[i] = from.sourceStarts[index] < 0 ? -1 : from.sourceStarts[index] + dx;
+        return from.starts[index + 1] + dx;
+    }
+
+    int getWidth() {
+        return starts[starts.length - 1];
+    }
+
+    int getHeight() {
+        return style.height;
+    }
+
+    int size() {
+        return articles.size();
+    }
+
+    int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the index of the article at the specified x coordinate, or -1 if
+     * there is none.
+     */
+    int indexAt(int x) {
+        int low = 0;
+        int high = articles.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (x < starts[mid])
+                high = mid - 1;
+            else if (x >= starts[mid + 1])
+                low = mid + 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the specified x coordinate is within the source of the
+     * article with the specified index.
+     */
+    boolean isSourceAt(int index, int x) {
+        return sourceStarts[index] >= 0 && x >= sourceStarts[index];
+    }
+
+    /**
+     * Returns true if the specified range of this strip is drawn like the
+     * range of the other strip which starts the specified distance further
+     * left, i.e. if the same articles are laid out there in the same way.
+     */
+    boolean drawsLike(TickerStrip other, int left, int width, int dx) {
+        if (style != other.style)
+            return false;
+        int first = countEndingBy(left);
+        int last = countStartingBefore(left + width) - 1;
+        int otherFirst = other.countEndingBy(left - dx);
+        int otherLast = other.countStartingBefore(left - dx + width) - 1;
+        if (last - first != otherLast - otherFirst)
+            return false;
+        for (int i = first, j = otherFirst; i <= last; i++, j++) {
+            if (articles.get(i) != other.articles.get(j)
+                    || starts[i] - dx != other.starts[j] || starts[i + 1] - dx != other.starts[j + 1])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of articles which start left of the specified x
+     * coordinate.
+     */
+    private int countStartingBefore(int x) {
+        int index = Arrays.binarySearch(starts, 0, articles.size(), x);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the number of articles which end at or left of the specified x
+     * coordinate.
+     */
+    private int countEndingBy(int x) {
+        int index = Arrays.binarySearch(starts, 1, articles.size() + 1, x);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Returns the index of the article equal to the specified one, or -1.
+     */
+    int indexOf(Article article) {
+        return articles.indexOf(article);
+    }
+
+    /**
+     * Draws the part of the strip which starts at the specified x coordinate
+     * to the canvas, which must be as high as the strip. Thumbnails which are
+     * not in memory are left out and prefetched for the callback.
+     */
+    void draw(Canvas canvas, int left, int width, Thumbnails thumbnails, Thumbnails.Callback callback) {
+        int first = Math.max(0, indexAt(left));
+        Rect bounds = new Rect();
+        float timeBaseline = style.baseline(style.timePaint);
+        float contentBaseline = style.baseline(style.contentPaint);
+        float sourceBaseline = style.baseline(style.sourcePaint);
+        for (int i = first, size = articles.size(); i < size && starts[i] < left + width; i++) {
+            Article article = articles.get(i);
+            if (thumbnailStarts[i] >= 0 && thumbnails != null) {
+                Bitmap bitmap = thumbnails.get(article.thumbnail);
+                if (bitmap != null) {
+                    bounds.left = thumbnailStarts[i] - left;
+                    bounds.top = (style.height - article.thumbnailHeight) / 2;
+                    bounds.right = bounds.left + article.thumbnailWidth;
+                    bounds.bottom = bounds.top + article.thumbnailHeight;
+                    canvas.drawBitmap(bitmap, null, bounds, style.thumbnailPaint);
+                } else
+                    thumbnails.prefetch(article.thumbnail, callback);
+            }
+            canvas.drawText(times[i], timeStarts[i] - left + style.padding, timeBaseline, style.timePaint);
+            canvas.drawText(titles[i], contentStarts[i] - left + style.padding, contentBaseline, style.contentPaint);
+            if (sources[i] != null)
+                canvas.drawText(sources[i], sourceStarts[i] - left + style.padding, sourceBaseline, style.sourcePaint);
+        }
+    }
+}
@@ -16,37 +16,377 @@
 
 package org.mcsoxford.rss;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-
 /**
- * Internal helper class for date conversions.
- * 
+ * Internal helper class for date conversions. All methods are thread-safe and
+ * work directly on the characters of the date string, so parsing a valid date
+ * neither allocates intermediate objects nor throws exceptions.
+ *
  * @author Mr Horn
  */
 final class Dates {
 
   /**
-   * @see <a href="http://www.ietf.org/rfc/rfc0822.txt">RFC 822</a>
+   * Returned by {@link #parseMillis(String)} if the string is not a valid date.
+   */
+  static final long INVALID = Long.MIN_VALUE;
+
+  private static final int MILLIS_PER_MINUTE = 60 * 1000;
+  private static final int MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+  /**
+   * Zone names defined by RFC 822, followed by other abbreviations which are
+   * common in feeds, and their offsets in minutes. Abbreviations name either
+   * standard or daylight saving time, so their offsets are fixed. Ambiguous
+   * abbreviations mean the zone which feeds use them for most: CST is US
+   * Central, AST is Atlantic and IST is India Standard Time.
    */
-  private static final SimpleDateFormat RFC822 = new SimpleDateFormat(
-      "EEE, dd MMM yyyy HH:mm:ss Z", java.util.Locale.ENGLISH);
+  private static final String[] ZONE_NAMES = {
+      "GMT", "UT", "UTC", "Z", "EST", "EDT", "CST", "CDT", "MST", "MDT", "PST", "PDT",
+      "AKST", "AKDT", "HST", "AST", "ADT", "NST", "NDT", "BRT", "ART",
+      "WET", "WEST", "BST", "CET", "CEST", "MET", "MEST", "EET", "EEST", "MSK", "SAST",
+      "IST", "PKT", "ICT", "WIB", "SGT", "HKT", "PHT", "AWST", "JST", "KST",
+      "ACST", "ACDT", "AEST", "AEDT", "NZST", "NZDT" };
+  private static final int[] ZONE_OFFSETS = {
+      0, 0, 0, 0, -5 * 60, -4 * 60, -6 * 60, -5 * 60, -7 * 60, -6 * 60, -8 * 60, -7 * 60,
+      -9 * 60, -8 * 60, -10 * 60, -4 * 60, -3 * 60, -3 * 60 - 30, -2 * 60 - 30, -3 * 60, -3 * 60,
+      0, 60, 60, 60, 2 * 60, 60, 2 * 60, 2 * 60, 3 * 60, 3 * 60, 2 * 60,
+      5 * 60 + 30, 5 * 60, 7 * 60, 7 * 60, 8 * 60, 8 * 60, 8 * 60, 8 * 60, 9 * 60, 9 * 60,
+      9 * 60 + 30, 10 * 60 + 30, 10 * 60, 11 * 60, 12 * 60, 13 * 60 };
+
+  private static final int UNKNOWN_ZONE = Integer.MIN_VALUE;
 
   /* Hide constructor */
   private Dates() {}
-  
+
   /**
-   * Parses string as an RFC 822 date/time.
-   * 
-   * @throws RSSFault if the string is not a valid RFC 822 date/time
+   * Parses string as an RFC 822 or RFC 3339 date/time. RFC 822 dates may omit
+   * the day of the week and the seconds, and may use either a named zone or a
+   * numeric offset. Two-digit years are supported. Dates with a zone name
+   * which is not in {@link #ZONE_NAMES} are invalid.
+   *
+   * @see <a href="http://www.ietf.org/rfc/rfc0822.txt">RFC 822</a>
+   * @see <a href="http://www.ietf.org/rfc/rfc3339.txt">RFC 3339</a>
+   * @return milliseconds since the epoch or {@link #INVALID}
    */
-  static java.util.Date parseRfc822(String date) {
-    try {
-      return RFC822.parse(date);
-    } catch (ParseException e) {
-      throw new RSSFault(e);
+  static long parseMillis(String date) {
+    if (date == null) {
+      return INVALID;
+    }
+
+    final int n = date.length();
+    final int i = skipSpaces(date, 0, n);
+    if (i + 4 < n && isDigit(date.charAt(i)) && date.charAt(i + 4) == '-') {
+      return parseRfc3339(date, i, n);
     }
+    return parseRfc822(date, i, n);
   }
 
-}
+  /**
+   * Parses {@code [EEE,] d MMM yy[yy] HH:mm[:ss] [zone]}.
+   */
+  private static long parseRfc822(String s, int i, int n) {
+    // optional day of the week
+    if (i < n && isLetter(s.charAt(i))) {
+      while (i < n && isLetter(s.charAt(i))) {
+        i++;
+      }
+      if (i < n && s.charAt(i) == ',') {
+        i++;
+      }
+      i = skipSpaces(s, i, n);
+    }
+
+    int start = i;
+    i = skipDigits(s, i, n);
+    if (i - start < 1 || i - start > 2) {
+      return INVALID;
+    }
+    final int day = digits(s, start, i);
+
+    i = skipSpaces(s, i, n);
+    if (i + 3 > n) {
+      return INVALID;
+    }
+    final int month = month(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2));
+    if (month == 0) {
+      return INVALID;
+    }
+    // tolerate full month names
+    i += 3;
+    while (i < n && isLetter(s.charAt(i))) {
+      i++;
+    }
+
+    i = skipSpaces(s, i, n);
+    start = i;
+    i = skipDigits(s, i, n);
+    int year;
+    if (i - start == 4) {
+      year = digits(s, start, i);
+    } else if (i - start == 2) {
+      year = digits(s, start, i);
+      year += year < 50 ? 2000 : 1900;
+    } else {
+      return INVALID;
+    }
 
+    i = skipSpaces(s, i, n);
+    start = i;
+    i = skipDigits(s, i, n);
+    if (i - start < 1 || i - start > 2 || i >= n || s.charAt(i) != ':') {
+      return INVALID;
+    }
+    final int hour = digits(s, start, i);
+
+    start = ++i;
+    i = skipDigits(s, i, n);
+    if (i - start != 2) {
+      return INVALID;
+    }
+    final int minute = digits(s, start, i);
+
+    int second = 0;
+    if (i < n && s.charAt(i) == ':') {
+      start = ++i;
+      i = skipDigits(s, i, n);
+      if (i - start != 2) {
+        return INVALID;
+      }
+      second = digits(s, start, i);
+    }
+
+    i = skipSpaces(s, i, n);
+    final int offset;
+    if (i == n) {
+      offset = 0;
+    } else if (s.charAt(i) == '+' || s.charAt(i) == '-') {
+      offset = numericOffset(s, i, n);
+    } else {
+      start = i;
+      while (i < n && isLetter(s.charAt(i))) {
+        i++;
+      }
+      offset = namedOffset(s, start, i);
+    }
+    if (offset == UNKNOWN_ZONE) {
+      return INVALID;
+    }
+
+    return millis(year, month, day, hour, minute, second, 0, offset);
+  }
+
+  /**
+   * Parses {@code yyyy-MM-dd['T'HH:mm[:ss[.SSS]](Z|+hh:mm)]}.
+   */
+  private static long parseRfc3339(String s, int i, int n) {
+    if (i + 10 > n || s.charAt(i + 7) != '-' || !isDigits(s, i, i + 4)
+        || !isDigits(s, i + 5, i + 7) || !isDigits(s, i + 8, i + 10)) {
+      return INVALID;
+    }
+    final int year = digits(s, i, i + 4);
+    final int month = digits(s, i + 5, i + 7);
+    final int day = digits(s, i + 8, i + 10);
+    i += 10;
+
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int millis = 0;
+    int offset = 0;
+    if (i < n && (s.charAt(i) == 'T' || s.charAt(i) == 't' || s.charAt(i) == ' ')) {
+      i++;
+      if (i + 5 > n || s.charAt(i + 2) != ':' || !isDigits(s, i, i + 2)
+          || !isDigits(s, i + 3, i + 5)) {
+        return INVALID;
+      }
+      hour = digits(s, i, i + 2);
+      minute = digits(s, i + 3, i + 5);
+      i += 5;
+
+      if (i < n && s.charAt(i) == ':') {
+        if (i + 3 > n || !isDigits(s, i + 1, i + 3)) {
+          return INVALID;
+        }
+        second = digits(s, i + 1, i + 3);
+        i += 3;
+
+        if (i < n && s.charAt(i) == '.') {
+          final int start = ++i;
+          i = skipDigits(s, i, n);
+          if (i == start) {
+            return INVALID;
+          }
+          // keep millisecond precision only
+          millis = digits(s, start, Math.min(i, start + 3));
+          for (int k = i - start; k < 3; k++) {
+            millis *= 10;
+          }
+        }
+      }
+
+      if (i < n) {
+        final char c = s.charAt(i);
+        if (c == 'Z' || c == 'z') {
+          offset = 0;
+        } else if (c == '+' || c == '-') {
+          offset = numericOffset(s, i, n);
+        } else {
+          offset = UNKNOWN_ZONE;
+        }
+        if (offset == UNKNOWN_ZONE) {
+          return INVALID;
+        }
+      }
+    }
+
+    return millis(year, month, day, hour, minute, second, millis, offset);
+  }
+
+  /**
+   * Parses {@code +hhmm} or {@code +hh:mm} and returns the offset in minutes.
+   */
+  private static int numericOffset(String s, int i, int n) {
+    final int sign = s.charAt(i) == '-' ? -1 : 1;
+    i++;
+    if (i + 2 > n || !isDigits(s, i, i + 2)) {
+      return UNKNOWN_ZONE;
+    }
+    final int hours = digits(s, i, i + 2);
+    i += 2;
+    if (i < n && s.charAt(i) == ':') {
+      i++;
+    }
+    int minutes = 0;
+    if (i + 2 <= n && isDigits(s, i, i + 2)) {
+      minutes = digits(s, i, i + 2);
+    }
+    return sign * (hours * 60 + minutes);
+  }
+
+  /**
+   * Returns the offset in minutes of the zone name between {@code start} and
+   * {@code end}, or {@link #UNKNOWN_ZONE}.
+   */
+  private static int namedOffset(String s, int start, int end) {
+    final int length = end - start;
+    if (length == 0) {
+      return 0;
+    }
+
+    for (int k = 0; k < ZONE_NAMES.length; k++) {
+      final String name = ZONE_NAMES[k];
+      if (name.length() == length && s.regionMatches(true, start, name, 0, length)) {
+        return ZONE_OFFSETS[k];
+      }
+    }
+    return UNKNOWN_ZONE;
+  }
+
+  /**
+   * Returns the month number of an English three-letter month abbreviation,
+   * or zero if the characters do not name a month.
+   */
+  private static int month(char a, char b, char c) {
+    a = Character.toLowerCase(a);
+    b = Character.toLowerCase(b);
+    c = Character.toLowerCase(c);
+    switch (a) {
+    case 'j':
+      if (b == 'a' && c == 'n') return 1;
+      if (b == 'u' && c == 'n') return 6;
+      if (b == 'u' && c == 'l') return 7;
+      return 0;
+    case 'f':
+      return b == 'e' && c == 'b' ? 2 : 0;
+    case 'm':
+      if (b == 'a' && c == 'r') return 3;
+      if (b == 'a' && c == 'y') return 5;
+      return 0;
+    case 'a':
+      if (b == 'p' && c == 'r') return 4;
+      if (b == 'u' && c == 'g') return 8;
+      return 0;
+    case 's':
+      return b == 'e' && c == 'p' ? 9 : 0;
+    case 'o':
+      return b == 'c' && c == 't' ? 10 : 0;
+    case 'n':
+      return b == 'o' && c == 'v' ? 11 : 0;
+    case 'd':
+      return b == 'e' && c == 'c' ? 12 : 0;
+    default:
+      return 0;
+    }
+  }
+
+  /**
+   * Converts the date/time fields to milliseconds since the epoch after
+   * validating their ranges. A leap second is folded into the previous one.
+   */
+  private static long millis(int year, int month, int day, int hour,
+      int minute, int second, int millis, int offsetMinutes) {
+    if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23
+        || minute > 59 || second > 60) {
+      return INVALID;
+    }
+    if (second == 60) {
+      second = 59;
+    }
+
+    final long seconds = hour * 3600L + minute * 60L + second;
+    return epochDay(year, month, day) * MILLIS_PER_DAY + seconds * 1000L
+        + millis - offsetMinutes * (long) MILLIS_PER_MINUTE;
+  }
+
+  /**
+   * Returns the number of days since 1970-01-01 of a proleptic Gregorian date.
+   */
+  private static long epochDay(int year, int month, int day) {
+    final int y = month <= 2 ? year - 1 : year;
+    final int era = (y >= 0 ? y : y - 399) / 400;
+    final int yearOfEra = y - era * 400;
+    final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isDigits(String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!isDigit(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int digits(String s, int start, int end) {
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      value = value * 10 + (s.charAt(i) - '0');
+    }
+    return value;
+  }
+
+  private static int skipDigits(String s, int i, int n) {
+    while (i < n && isDigit(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipSpaces(String s, int i, int n) {
+    while (i < n && Character.isWhitespace(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Thread-safe aggregation of the RSS items of several feeds into a single
+ * list, newest first. The feeds are loaded concurrently by an
+ * {@link RSSLoader}. Every feed is sorted once when it is loaded; the
+ * aggregated list is then produced by a k-way merge of the sorted feeds, so
+ * a refresh of a single feed never sorts the items of all feeds again.
+ * <p>
+ * Items with the same canonical link, e.g. an article which appears in
+ * several feeds, are only included once, in their newest version. Items
+ * without a publication date are sorted after all dated items.
+ *
+ * @author Mr Horn
+ */
+public final class RSSAggregator {
+
+  /**
+   * Callback which is notified whenever the aggregated items change.
+   * Listeners run on the executor they have been registered with.
+   */
+  public interface Listener {
+
+    /**
+     * The aggregated items have changed because an RSS feed has been loaded.
+     *
+     * @param items unmodifiable list of aggregated items, newest first
+     */
+    void updated(List<RSSItem> items);
+
+    /**
+     * The RSS feed with the specified URI could not be loaded. The aggregated
+     * items keep the items of its last successful load.
+     */
+    void failed(String uri, Exception cause);
+
+  }
+
+  /**
+   * Orders items by publication date, newest first.
+   */
+  private static final Comparator<RSSItem> NEWEST_FIRST = new Comparator<RSSItem>() {
+    @Override
+    public int compare(RSSItem a, RSSItem b) {
+      final long x = time(a);
+      final long y = time(b);
+      return x < y ? 1 : (x == y ? 0 : -1);
+    }
+  };
+
+  private final RSSLoader loader;
+  private final int limit;
+
+  /**
+   * Registered feeds by URI, in registration order.
+   */
+  private final Map<String, Source> sources = new LinkedHashMap<String, Source>();
+
+  /**
+   * Number of feeds registered so far, to order items with equal dates.
+   */
+  private int registrations;
+
+  private volatile List<RSSItem> items = Collections.emptyList();
+
+  /**
+   * Items the listener has last been notified of. Guarded by
+   * {@link #publication}.
+   */
+  private List<RSSItem> published;
+  private final Object publication = new Object();
+
+  private volatile Listener listener;
+  private volatile Executor executor;
+
+  /**
+   * Instantiate an aggregation which loads its feeds with the specified
+   * loader and keeps at most the specified number of newest items.
+   *
+   * @param loader loader of the aggregated feeds
+   * @param limit maximum number of aggregated items, e.g.
+   *          {@link Integer#MAX_VALUE} to keep all items
+   */
+  public RSSAggregator(RSSLoader loader, int limit) {
+    if (loader == null) {
+      throw new IllegalArgumentException("RSS loader must not be null.");
+    } else if (limit < 1) {
+      throw new IllegalArgumentException("Item limit must be positive.");
+    }
+
+    this.loader = loader;
+    this.limit = limit;
+  }
+
+  /**
+   * Notify the specified listener whenever the aggregated items change. The
+   * listener is notified of merges in the order they have been made, and
+   * never of a merge older than the last one it has been notified of.
+   *
+   * @param listener callback to notify, or {@code null} to notify none
+   * @param executor executor to notify the listener on, or {@code null} to
+   *          notify it on the loading thread
+   */
+  public void setListener(Listener listener, Executor executor) {
+    this.executor = executor;
+    this.listener = listener;
+  }
+
+  /**
+   * Add the RSS feed with the specified URI to the aggregation. The feed is
+   * not loaded until the next refresh.
+   */
+  public synchronized void add(String uri) {
+    if (uri == null) {
+      throw new IllegalArgumentException("RSS feed URI must not be null.");
+    }
+
+    if (!sources.containsKey(uri)) {
+      sources.put(uri, new Source(registrations++));
+    }
+  }
+
+  /**
+   * Remove the RSS feed with the specified URI and its items from the
+   * aggregation.
+   */
+  public void remove(String uri) {
+    final boolean removed;
+    synchronized (this) {
+      removed = sources.remove(uri) != null;
+    }
+
+    if (removed) {
+      merge();
+      publish();
+    }
+  }
+
+  /**
+   * Returns the URIs of the aggregated RSS feeds.
+   */
+  public synchronized Set<String> getSources() {
+    return Collections.unmodifiableSet(new HashSet<String>(sources.keySet()));
+  }
+
+  /**
+   * Returns the aggregated items, newest first.
+   */
+  public List<RSSItem> getItems() {
+    return items;
+  }
+
+  /**
+   * Asynchronously load all RSS feeds of the aggregation. The listener is
+   * notified as every single feed completes.
+   */
+  public void refresh() {
+    for (String uri : getSources()) {
+      refresh(uri, /* latch */null);
+    }
+  }
+
+  /**
+   * Asynchronously load the RSS feed with the specified URI.
+   */
+  public void refresh(String uri) {
+    refresh(uri, /* latch */null);
+  }
+
+  /**
+   * Load all RSS feeds of the aggregation and wait until every load has
+   * either succeeded or failed.
+   *
+   * @return unmodifiable list of aggregated items, newest first
+   * @throws InterruptedException if the current thread has been interrupted
+   *           while waiting
+   */
+  public List<RSSItem> load() throws InterruptedException {
+    final Set<String> uris = getSources();
+    final CountDownLatch latch = new CountDownLatch(uris.size());
+    for (String uri : uris) {
+      refresh(uri, latch);
+    }
+    latch.await();
+    return items;
+  }
+
+  private void refresh(String uri, final CountDownLatch latch) {
+    final RSSLoader.Listener loaded = new RSSLoader.Listener() {
+      @Override
+      public void loaded(String uri, RSSFeed feed) {
+        try {
+          update(uri, feed);
+        } finally {
+          countDown(latch);
+        }
+      }
+
+      @Override
+      public void failed(final String uri, final Exception cause) {
+        try {
+          notifyFailed(uri, cause);
+        } finally {
+          countDown(latch);
+        }
+      }
+    };
+
+    // notify on the loading thread so that merging never blocks the caller
+    if (loader.load(uri, /* priority */0, loaded, /* executor */null) == null) {
+      // the loader has been stopped
+      countDown(latch);
+    }
+  }
+
+  private static void countDown(CountDownLatch latch) {
+    if (latch != null) {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Replace the items of the specified feed and merge all feeds again.
+   */
+  private void update(String uri, RSSFeed feed) {
+    final List<RSSItem> sorted = new ArrayList<RSSItem>(feed.getItems());
+    // feeds are usually sorted already, which makes the merge sort linear
+    Collections.sort(sorted, NEWEST_FIRST);
+
+    synchronized (this) {
+      final Source source = sources.get(uri);
+      if (source == null) {
+        // removed while loading
+        return;
+      }
+      source.set(sorted);
+    }
+
+    merge();
+    publish();
+  }
+
+  /**
+   * Merge the sorted items of all feeds, skipping items whose canonical link
+   * has already been merged, until the limit has been reached.
+   */
+  private synchronized void merge() {
+    final PriorityQueue<Cursor> heap = new PriorityQueue<Cursor>(Math.max(1, sources.size()));
+    int total = 0;
+    for (Source source : sources.values()) {
+      if (source.items.length > 0) {
+        heap.add(new Cursor(source));
+        total += source.items.length;
+      }
+    }
+
+    // the limit may be far larger than the number of items
+    final Set<String> links = new HashSet<String>();
+    final List<RSSItem> merged = new ArrayList<RSSItem>(Math.min(limit, total));
+    while (!heap.isEmpty() && merged.size() < limit) {
+      final Cursor cursor = heap.poll();
+      final RSSItem item = cursor.item();
+      final String link = link(item);
+      if (link == null || links.add(link)) {
+        merged.add(item);
+      }
+      if (cursor.next()) {
+        heap.add(cursor);
+      }
+    }
+
+    items = Collections.unmodifiableList(merged);
+  }
+
+  /**
+   * Notify the listener of the latest merge unless it has been notified of it
+   * already. Concurrent merges may finish in any order, so the items are read
+   * and handed on while holding the publication lock; an older merge is never
+   * published after a newer one.
+   */
+  private void publish() {
+    final Listener listener = this.listener;
+    if (listener == null) {
+      return;
+    }
+
+    synchronized (publication) {
+      final List<RSSItem> merged = items;
+      if (merged == published) {
+        return;
+      }
+      published = merged;
+
+      final Runnable notification = new Runnable() {
+        @Override
+        public void run() {
+          listener.updated(merged);
+        }
+      };
+
+      final Executor executor = this.executor;
+      if (executor == null) {
+        notification.run();
+      } else {
+        executor.execute(notification);
+      }
+    }
+  }
+
+  private void notifyFailed(final String uri, final Exception cause) {
+    final Listener listener = this.listener;
+    if (listener == null) {
+      return;
+    }
+
+    final Runnable notification = new Runnable() {
+      @Override
+      public void run() {
+        listener.failed(uri, cause);
+      }
+    };
+
+    final Executor executor = this.executor;
+    if (executor == null) {
+      notification.run();
+    } else {
+      executor.execute(notification);
+    }
+  }
+
+  /**
+   * Returns the publication date in milliseconds, {@link Long#MIN_VALUE} if
+   * the item has none.
+   */
+  private static long time(RSSItem item) {
+    if (!item.isLoaded(RSSConfig.PUBDATE) || item.getPubDate() == null) {
+      return Long.MIN_VALUE;
+    }
+    return item.getPubDate().getTime();
+  }
+
+  /**
+   * Returns the canonical link of the item, {@code null} if it has none.
+   */
+  private static String link(RSSItem item) {
+    if (!item.isLoaded(RSSConfig.LINK) || item.getLink() == null) {
+      return null;
+    }
+    return canonicalize(item.getLink().toString());
+  }
+
+  /**
+   * Returns a canonical form of the specified link so that different
+   * spellings of the same article link compare equal. The scheme, default
+   * ports, a leading {@code www.}, fragments, trailing slashes and
+   * {@code utm_*} tracking parameters are ignored.
+   */
+  static String canonicalize(String link) {
+    String s = link.trim();
+    final int fragment = s.indexOf('#');
+    if (fragment >= 0) {
+      s = s.substring(0, fragment);
+    }
+
+    final int scheme = s.indexOf("://");
+    if (scheme < 0) {
+      return s;
+    }
+
+    // host and optional port
+    final int hostStart = scheme + 3;
+    int pathStart = hostStart;
+    while (pathStart < s.length() && s.charAt(pathStart) != '/' && s.charAt(pathStart) != '?') {
+      pathStart++;
+    }
+    String host = s.substring(hostStart, pathStart).toLowerCase(Locale.US);
+    if (host.endsWith(":80") || host.endsWith(":443")) {
+      host = host.substring(0, host.lastIndexOf(':'));
+    }
+    if (host.startsWith("www.")) {
+      host = host.substring(4);
+    }
+
+    final int queryStart = s.indexOf('?', pathStart);
+    String path = queryStart < 0 ? s.substring(pathStart) : s.substring(pathStart, queryStart);
+    while (path.endsWith("/")) {
+      path = path.substring(0, path.length() - 1);
+    }
+
+    final StringBuilder canonical = new StringBuilder(s.length());
+    canonical.append(host).append(path);
+    if (queryStart >= 0) {
+      char separator = '?';
+      for (String parameter : s.substring(queryStart + 1).split("&")) {
+        if (parameter.length() > 0 && !parameter.startsWith("utm_")) {
+          canonical.append(separator).append(parameter);
+          separator = '&';
+        }
+      }
+    }
+    return canonical.toString();
+  }
+
+  /**
+   * Sorted items of a single aggregated feed.
+   */
+  private static final class Source {
+
+    /** Registration order, breaks ties between items with equal dates */
+    final int order;
+
+    RSSItem[] items = new RSSItem[0];
+
+    /** Publication times of {@link #items} */
+    long[] times = new long[0];
+
+    Source(int order) {
+      this.order = order;
+    }
+
+    void set(List<RSSItem> sorted) {
+      final RSSItem[] items = sorted.toArray(new RSSItem[sorted.size()]);
+      final long[] times = new long[items.length];
+      for (int i = 0; i < items.length; i++) {
+        times[i] = time(items[i]);
+      }
+      this.items = items;
+      this.times = times;
+    }
+
+  }
+
+  /**
+   * Position of the k-way merge within a single feed.
+   */
+  private static final class Cursor implements Comparable<Cursor> {
+
+    private final Source source;
+    private int index;
+
+    Cursor(Source source) {
+      this.source = source;
+    }
+
+    RSSItem item() {
+      return source.items[index];
+    }
+
+    /**
+     * Advance to the next item and return {@code true} unless the feed has
+     * been merged completely.
+     */
+    boolean next() {
+      return ++index < source.items.length;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      final long x = source.times[index];
+      final long y = other.source.times[other.index];
+      if (x != y) {
+        return x < y ? 1 : -1;
+      }
+      return source.order - other.source.order;
+    }
+
+  }
+
+}
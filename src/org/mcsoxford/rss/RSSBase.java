@@ -32,26 +32,82 @@ abstract class RSSBase {
     private java.util.Date pubdate;
 
     /**
-     * Specify initial capacity for the List which contains the category names.
+     * Bit mask of the {@link RSSConfig} field selection flags which have been
+     * parsed.
      */
-    RSSBase(byte categoryCapacity) {
-        categories = categoryCapacity == 0 ? null : new ArrayList<String>(
-                categoryCapacity);
+    private final int fields;
+
+    /**
+     * Specify initial capacity for the List which contains the category names
+     * and the fields which are parsed.
+     */
+    RSSBase(byte categoryCapacity, int fields) {
+        this.fields = fields;
+        categories = categoryCapacity == 0 || !isLoaded(RSSConfig.CATEGORIES) ? null
+                : new ArrayList<String>(categoryCapacity);
+    }
+
+    /**
+     * Returns {@code true} if the specified field has been parsed, i.e. it
+     * has been selected in the {@link RSSConfig} used to load this object.
+     *
+     * @param field field selection flag such as {@link RSSConfig#TITLE}
+     */
+    public boolean isLoaded(int field) {
+        return (fields & field) == field;
+    }
+
+    /**
+     * Verify that the specified field can be read.
+     *
+     * @throws IllegalStateException if the field has not been parsed
+     */
+    void checkLoaded(int field) {
+        if (!isLoaded(field)) {
+            throw new IllegalStateException("RSS field has not been loaded: " + field);
+        }
+    }
+
+    /**
+     * Returns the bit mask of fields which have been parsed.
+     */
+    int fields() {
+        return fields;
     }
 
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#TITLE} has not been
+     *         selected
+     */
     public String getTitle() {
+        checkLoaded(RSSConfig.TITLE);
         return title;
     }
 
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#DESCRIPTION} has not
+     *         been selected
+     */
     public String getDescription() {
+        checkLoaded(RSSConfig.DESCRIPTION);
         return description;
     }
 
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#LINK} has not been
+     *         selected
+     */
     public android.net.Uri getLink() {
+        checkLoaded(RSSConfig.LINK);
         return link;
     }
 
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#CATEGORIES} has not
+     *         been selected
+     */
     public java.util.List<String> getCategories() {
+        checkLoaded(RSSConfig.CATEGORIES);
         if (categories == null) {
             return java.util.Collections.emptyList();
         }
@@ -59,7 +115,12 @@ abstract class RSSBase {
         return java.util.Collections.unmodifiableList(categories);
     }
 
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#PUBDATE} has not been
+     *         selected
+     */
     public java.util.Date getPubDate() {
+        checkLoaded(RSSConfig.PUBDATE);
         return pubdate;
     }
 
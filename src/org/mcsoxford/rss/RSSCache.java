@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe, in-memory cache of RSS feeds loaded by an {@link RSSReader}.
+ * The cache is bounded both by the number of feeds and by the total size of
+ * their documents; the least recently used feeds are evicted first.
+ * <p>
+ * A cached feed is fresh until the time given by the {@code Cache-Control:
+ * max-age} or {@code Expires} response headers. If the response had neither,
+ * the feed's &lt;ttl&gt; element is used, and failing that the default time to
+ * live of the cache. Fresh feeds are returned without any network I/O.
+ *
+ * @author Mr Horn
+ */
+public final class RSSCache {
+
+  private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+
+  /**
+   * Cached feed and the time until which it is fresh.
+   */
+  private static final class Entry {
+
+    final RSSFeed feed;
+    final long expires;
+
+    Entry(RSSFeed feed, long expires) {
+      this.feed = feed;
+      this.expires = expires;
+    }
+
+  }
+
+  private final RSSReader reader;
+  private final int maxEntries;
+  private final long maxBytes;
+  private final long defaultTtl;
+
+  /**
+   * Entries in access order, i.e. the eldest entry is the least recently used.
+   */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16,
+      0.75f, /* accessOrder */true);
+
+  /**
+   * Sum of the document sizes of all cached feeds.
+   */
+  private long bytes;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Instantiate a cache in front of the specified reader.
+   *
+   * @param reader reader to load feeds which are not cached or stale
+   * @param maxEntries maximum number of cached feeds
+   * @param maxBytes maximum total size in bytes of the cached feed documents
+   * @param defaultTtlMillis time to live of feeds which specify none
+   */
+  public RSSCache(RSSReader reader, int maxEntries, long maxBytes, long defaultTtlMillis) {
+    if (reader == null) {
+      throw new IllegalArgumentException("RSS reader must not be null.");
+    }
+    if (maxEntries <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException("Cache bounds must be positive.");
+    }
+    if (defaultTtlMillis < 0) {
+      throw new IllegalArgumentException("Default TTL must not be negative.");
+    }
+
+    this.reader = reader;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.defaultTtl = defaultTtlMillis;
+  }
+
+  /**
+   * Returns the RSS feed of the specified URI, either from the cache if it is
+   * still fresh or otherwise by loading it with the reader. The reader is not
+   * invoked while the cache lock is held, so concurrent loads of different
+   * URIs do not block each other.
+   *
+   * @param uri RSS feed URI
+   * @return in-memory representation of the RSS feed
+   * @throws RSSReaderException if the feed could not be loaded
+   * @throws RSSFault if an unrecoverable error occurs
+   */
+  public RSSFeed load(String uri) throws RSSReaderException {
+    synchronized (this) {
+      final Entry entry = entries.get(uri);
+      if (entry != null && entry.expires > System.currentTimeMillis()) {
+        hits++;
+        return entry.feed;
+      }
+      misses++;
+    }
+
+    final RSSReader.Loaded loaded = reader.fetch(uri);
+    put(uri, loaded.feed, expires(loaded));
+    return loaded.feed;
+  }
+
+  /**
+   * Remove the feed of the specified URI so that the next load goes to the
+   * network.
+   */
+  public synchronized void invalidate(String uri) {
+    final Entry entry = entries.remove(uri);
+    if (entry != null) {
+      bytes -= entry.feed.getContentSize();
+    }
+  }
+
+  /**
+   * Remove all feeds from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Returns the number of loads which were served from the cache.
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of loads which went to the reader.
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of feeds removed to stay within the cache bounds.
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Returns the number of cached feeds.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized void put(String uri, RSSFeed feed, long expires) {
+    final Entry previous = entries.put(uri, new Entry(feed, expires));
+    if (previous != null) {
+      bytes -= previous.feed.getContentSize();
+    }
+    bytes += feed.getContentSize();
+
+    // evict least recently used feeds, but always keep the newest one
+    final Iterator<Map.Entry<String, Entry>> i = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || bytes > maxBytes) && entries.size() > 1) {
+      final Entry eldest = i.next().getValue();
+      i.remove();
+      bytes -= eldest.feed.getContentSize();
+      evictions++;
+    }
+  }
+
+  /**
+   * Returns the time until which the loaded feed is fresh. The expiry time of
+   * the response is used rather than the one of the feed, which may have been
+   * parsed from an earlier response.
+   */
+  private long expires(RSSReader.Loaded loaded) {
+    if (loaded.expires >= 0) {
+      return loaded.expires;
+    }
+
+    final RSSFeed feed = loaded.feed;
+    final long now = System.currentTimeMillis();
+    if (feed.getTtl() >= 0) {
+      return now + feed.getTtl() * MILLIS_PER_MINUTE;
+    }
+    return now + defaultTtl;
+  }
+
+}
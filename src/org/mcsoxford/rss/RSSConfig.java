@@ -25,6 +25,57 @@ package org.mcsoxford.rss;
  */
 public final class RSSConfig {
 
+  /**
+   * Field selection flag for the &lt;title&gt; element.
+   */
+  public static final int TITLE = 1;
+
+  /**
+   * Field selection flag for the &lt;link&gt; element.
+   */
+  public static final int LINK = 1 << 1;
+
+  /**
+   * Field selection flag for the &lt;description&gt; element.
+   */
+  public static final int DESCRIPTION = 1 << 2;
+
+  /**
+   * Field selection flag for the &lt;content:encoded&gt; element.
+   */
+  public static final int CONTENT = 1 << 3;
+
+  /**
+   * Field selection flag for &lt;category&gt; elements.
+   */
+  public static final int CATEGORIES = 1 << 4;
+
+  /**
+   * Field selection flag for the &lt;pubDate&gt; element.
+   */
+  public static final int PUBDATE = 1 << 5;
+
+  /**
+   * Field selection flag for the name and URL of the &lt;source&gt; element.
+   */
+  public static final int SOURCE = 1 << 6;
+
+  /**
+   * Field selection flag for &lt;media:thumbnail&gt; elements.
+   */
+  public static final int THUMBNAILS = 1 << 7;
+
+  /**
+   * Field selection flag for the &lt;guid&gt; element.
+   */
+  public static final int GUID = 1 << 8;
+
+  /**
+   * Field selection mask for all supported RSS elements.
+   */
+  public static final int ALL = TITLE | LINK | DESCRIPTION | CONTENT
+      | CATEGORIES | PUBDATE | SOURCE | THUMBNAILS | GUID;
+
   /**
    * Average number of RSS item &lt;category&gt; elements which serves as the
    * initial capacity of the List implementation.
@@ -38,24 +89,84 @@ public final class RSSConfig {
   final byte thumbnailAvg;
 
   /**
-   * Instantiate an RSS configuration with the specified parameters.
+   * Expected number of RSS &lt;item&gt; elements which serves as the initial
+   * capacity of the item storage of an RSS feed.
+   */
+  final int itemAvg;
+
+  /**
+   * Bit mask of the RSS elements which are parsed. Excluded elements are
+   * skipped without buffering their content.
+   */
+  final int fields;
+
+  /**
+   * Instantiate an RSS configuration with the specified parameters which
+   * parses only the selected RSS elements.
    * 
    * @param categoryAvg average number of RSS item &lt;category&gt; elements in
    *          a typical RSS feed
    * @param thumbnailAvg average number of RSS item &lt;metia:thumbnail&gt;
    *          elements in a typical RSS feed
+   * @param itemAvg average number of RSS &lt;item&gt; elements in a typical
+   *          RSS feed
+   * @param fields bit mask of field selection flags such as
+   *          {@code TITLE | LINK | PUBDATE}
    */
-  public RSSConfig(byte categoryAvg, byte thumbnailAvg) {
+  public RSSConfig(byte categoryAvg, byte thumbnailAvg, int itemAvg, int fields) {
+    if (itemAvg < 0) {
+      throw new IllegalArgumentException("Item capacity must not be negative.");
+    }
+
     this.categoryAvg = categoryAvg;
     this.thumbnailAvg = thumbnailAvg;
+    this.itemAvg = itemAvg;
+    this.fields = fields;
+  }
+
+  /**
+   * Instantiate an RSS configuration with the specified parameters which
+   * parses only the selected RSS elements.
+   * 
+   * @param categoryAvg average number of RSS item &lt;category&gt; elements in
+   *          a typical RSS feed
+   * @param thumbnailAvg average number of RSS item &lt;metia:thumbnail&gt;
+   *          elements in a typical RSS feed
+   * @param fields bit mask of field selection flags such as
+   *          {@code TITLE | LINK | PUBDATE}
+   */
+  public RSSConfig(byte categoryAvg, byte thumbnailAvg, int fields) {
+    this(categoryAvg, thumbnailAvg, 25, fields);
+  }
+
+  /**
+   * Instantiate an RSS configuration with the specified parameters.
+   * 
+   * @param categoryAvg average number of RSS item &lt;category&gt; elements in
+   *          a typical RSS feed
+   * @param thumbnailAvg average number of RSS item &lt;metia:thumbnail&gt;
+   *          elements in a typical RSS feed
+   */
+  public RSSConfig(byte categoryAvg, byte thumbnailAvg) {
+    this(categoryAvg, thumbnailAvg, ALL);
+  }
+
+  /**
+   * Instantiate an RSS configuration with default capacity values which
+   * parses only the selected RSS elements.
+   * 
+   * @param fields bit mask of field selection flags such as
+   *          {@code TITLE | LINK | PUBDATE}
+   */
+  public RSSConfig(int fields) {
+    this((byte) 3, (byte) 2, fields);
   }
 
   /**
    * Instantiate an RSS configuration with default values.
    */
   public RSSConfig() {
-    this.categoryAvg = 3;
-    this.thumbnailAvg = 2;
+    this(ALL);
   }
 
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable difference between two versions of the RSS items of a feed. Items
+ * are identified by their link, or by their guid if they have no link, or
+ * else by their title and publication date. An item which is identified the
+ * same way in both versions has either been kept as it is or changed, e.g.
+ * when its title has been corrected. Items which are identified the same way
+ * within one version are matched in their order of appearance.
+ *
+ * @author Mr Horn
+ */
+public final class RSSDiff {
+
+  /**
+   * Separates the parts of an identity; XML text never contains it.
+   */
+  private static final char SEPARATOR = '\0';
+
+  private final List<RSSItem> added;
+  private final List<RSSItem> removed;
+  private final List<RSSItem> changed;
+
+  /**
+   * Previous versions of the items which have been kept as they are, by
+   * current version.
+   */
+  private final Map<RSSItem, RSSItem> unchanged;
+
+  private RSSDiff(List<RSSItem> added, List<RSSItem> removed, List<RSSItem> changed,
+      Map<RSSItem, RSSItem> unchanged) {
+    this.added = Collections.unmodifiableList(added);
+    this.removed = Collections.unmodifiableList(removed);
+    this.changed = Collections.unmodifiableList(changed);
+    this.unchanged = unchanged;
+  }
+
+  /**
+   * Compare the RSS items of two versions of a feed.
+   *
+   * @param previous previous version of the feed, {@code null} if there is
+   *          none
+   * @param current current version of the feed
+   */
+  public static RSSDiff compare(RSSFeed previous, RSSFeed current) {
+    if (current == null) {
+      throw new IllegalArgumentException("Current RSS feed must not be null.");
+    }
+
+    final List<RSSItem> empty = Collections.emptyList();
+    return compare(previous == null ? empty : previous.getItems(), current.getItems());
+  }
+
+  /**
+   * Compare two lists of RSS items.
+   *
+   * @param previous previous RSS items
+   * @param current current RSS items
+   */
+  public static RSSDiff compare(List<RSSItem> previous, List<RSSItem> current) {
+    if (previous == null || current == null) {
+      throw new IllegalArgumentException("RSS items must not be null.");
+    }
+
+    final String[] keys = keys(previous);
+    final Map<String, Integer> old = new HashMap<String, Integer>(keys.length * 2);
+    for (int i = 0; i < keys.length; i++) {
+      old.put(keys[i], i);
+    }
+
+    final List<RSSItem> added = new ArrayList<RSSItem>();
+    final List<RSSItem> changed = new ArrayList<RSSItem>();
+    final Map<RSSItem, RSSItem> unchanged = new IdentityHashMap<RSSItem, RSSItem>();
+    final boolean[] matched = new boolean[keys.length];
+    final String[] currentKeys = keys(current);
+    for (int i = 0; i < currentKeys.length; i++) {
+      final RSSItem item = current.get(i);
+      final Integer index = old.get(currentKeys[i]);
+      if (index == null) {
+        added.add(item);
+        continue;
+      }
+
+      final RSSItem before = previous.get(index);
+      matched[index] = true;
+      if (before == item || sameContent(before, item)) {
+        unchanged.put(item, before);
+      } else {
+        changed.add(item);
+      }
+    }
+
+    // whatever has not been matched is gone, in its previous order
+    final List<RSSItem> removed = new ArrayList<RSSItem>();
+    for (int i = 0; i < matched.length; i++) {
+      if (!matched[i]) {
+        removed.add(previous.get(i));
+      }
+    }
+
+    return new RSSDiff(added, removed, changed, unchanged);
+  }
+
+  /**
+   * Returns the identities of the specified items. The n-th repetition of an
+   * identity is told apart by its count.
+   */
+  private static String[] keys(List<RSSItem> items) {
+    final String[] keys = new String[items.size()];
+    final Map<String, Integer> counts = new HashMap<String, Integer>(keys.length * 2);
+    for (int i = 0; i < keys.length; i++) {
+      final String key = key(items.get(i));
+      final Integer count = counts.get(key);
+      if (count == null) {
+        counts.put(key, 1);
+        keys[i] = key;
+      } else {
+        counts.put(key, count + 1);
+        keys[i] = key + SEPARATOR + count;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the identity of an item, which is prefixed by the kind of value
+   * it has been taken from.
+   */
+  private static String key(RSSItem item) {
+    if (item.isLoaded(RSSConfig.LINK) && item.getLink() != null) {
+      return "L" + item.getLink();
+    }
+    if (item.isLoaded(RSSConfig.GUID) && item.getGuid() != null) {
+      return "G" + item.getGuid();
+    }
+
+    final String title = item.isLoaded(RSSConfig.TITLE) ? item.getTitle() : null;
+    final Date pubDate = item.isLoaded(RSSConfig.PUBDATE) ? item.getPubDate() : null;
+    return "T" + (title == null ? "" : title) + SEPARATOR
+        + (pubDate == null ? "" : Long.toString(pubDate.getTime()));
+  }
+
+  /**
+   * Returns the items which are new in the current version, in their current
+   * order.
+   */
+  public List<RSSItem> getAdded() {
+    return added;
+  }
+
+  /**
+   * Returns the items of the previous version which are no longer present,
+   * in their previous order.
+   */
+  public List<RSSItem> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Returns the current versions of the items whose content has changed, in
+   * their current order.
+   */
+  public List<RSSItem> getChanged() {
+    return changed;
+  }
+
+  /**
+   * Returns the previous version of the specified current item if the item
+   * has been kept as it is, {@code null} if it is new or has changed.
+   */
+  public RSSItem getUnchanged(RSSItem item) {
+    return unchanged.get(item);
+  }
+
+  /**
+   * Returns {@code true} if both versions have the same items with the same
+   * content.
+   */
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+  }
+
+  /**
+   * Compare all loaded fields of two items with the same identity.
+   */
+  private static boolean sameContent(RSSItem a, RSSItem b) {
+    if (a.fields() != b.fields()) {
+      return false;
+    }
+
+    return (!a.isLoaded(RSSConfig.TITLE) || same(a.getTitle(), b.getTitle()))
+        && (!a.isLoaded(RSSConfig.GUID) || same(a.getGuid(), b.getGuid()))
+        && (!a.isLoaded(RSSConfig.DESCRIPTION) || same(a.getDescription(), b.getDescription()))
+        && (!a.isLoaded(RSSConfig.CONTENT) || same(a.getContent(), b.getContent()))
+        && (!a.isLoaded(RSSConfig.CATEGORIES) || a.getCategories().equals(b.getCategories()))
+        && (!a.isLoaded(RSSConfig.PUBDATE) || same(a.getPubDate(), b.getPubDate()))
+        && (!a.isLoaded(RSSConfig.SOURCE) || same(a.getSourceName(), b.getSourceName())
+            && same(a.getSourceUrl(), b.getSourceUrl()))
+        && (!a.isLoaded(RSSConfig.THUMBNAILS) || a.getThumbnails().equals(b.getThumbnails()));
+  }
+
+  private static boolean same(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+}
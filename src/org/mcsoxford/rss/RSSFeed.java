@@ -23,23 +23,105 @@ package org.mcsoxford.rss;
  */
 public class RSSFeed extends RSSBase {
 
-  private final java.util.List<RSSItem> items;
+  private final java.util.ArrayList<RSSItem> items;
 
-  RSSFeed() {
-    super(/* initial capacity for category names */ (byte) 3);
-    items = new java.util.LinkedList<RSSItem>();
+  /**
+   * Unmodifiable view of {@link #items}.
+   */
+  private final java.util.List<RSSItem> view;
+
+  /**
+   * Value of the &lt;ttl&gt; element in minutes or {@code -1} if absent.
+   */
+  private int ttl = -1;
+
+  /**
+   * Expiry time in milliseconds since the epoch derived from the headers of
+   * the HTTP response the feed has been parsed from or {@code -1} if the
+   * response did not specify any. Later responses which report the feed as
+   * unchanged do not update it.
+   */
+  private long expires = -1;
+
+  /**
+   * Number of bytes of the RSS feed document received over the network.
+   */
+  private long transferSize;
+
+  /**
+   * Number of bytes of the RSS feed document after decompression.
+   */
+  private long contentSize;
+
+  RSSFeed(int itemCapacity, int fields) {
+    super(/* initial capacity for category names */ (byte) 3, fields);
+    items = new java.util.ArrayList<RSSItem>(itemCapacity);
+    view = java.util.Collections.unmodifiableList(items);
   }
 
   /**
-   * Returns an unmodifiable list of RSS items.
+   * Returns an unmodifiable list of RSS items. The list implements
+   * {@link java.util.RandomAccess}, so indexed access is constant time.
    */
   public java.util.List<RSSItem> getItems() {
-    return java.util.Collections.unmodifiableList(items);
+    return view;
+  }
+
+  /**
+   * Returns the number of minutes the RSS feed may be cached as declared by
+   * its &lt;ttl&gt; element or {@code -1} if it has none.
+   */
+  public int getTtl() {
+    return ttl;
+  }
+
+  void setTtl(int ttl) {
+    this.ttl = ttl;
+  }
+
+  long expires() {
+    return expires;
+  }
+
+  void setExpires(long expires) {
+    this.expires = expires;
+  }
+
+  /**
+   * Returns the number of bytes of the RSS feed document which have been
+   * received over the network, i.e. before decompression.
+   */
+  public long getTransferSize() {
+    return transferSize;
+  }
+
+  /**
+   * Returns the number of bytes of the RSS feed document which have been
+   * parsed, i.e. after decompression.
+   */
+  public long getContentSize() {
+    return contentSize;
+  }
+
+  void setSizes(long transferSize, long contentSize) {
+    this.transferSize = transferSize;
+    this.contentSize = contentSize;
   }
 
   void addItem(RSSItem item) {
     items.add(item);
   }
 
+  void ensureCapacity(int itemCapacity) {
+    items.ensureCapacity(itemCapacity);
+  }
+
+  /**
+   * Release unused item capacity once the RSS feed has been parsed.
+   */
+  void trimToSize() {
+    items.trimToSize();
+  }
+
 }
 
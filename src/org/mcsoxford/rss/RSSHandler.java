@@ -18,9 +18,9 @@ package org.mcsoxford.rss;
 
 import android.net.Uri;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.StringReader;
 
 /**
  * Internal SAX handler to efficiently parse RSS feeds. Only a single thread
@@ -35,17 +35,33 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
      */
     private static final String RSS_ITEM = "item";
 
+    /**
+     * Constant for XML element name which contains RSS items.
+     */
+    private static final String RSS_CHANNEL = "channel";
+
+    /**
+     * Size of the element dispatch table, a power of two.
+     */
+    private static final int TABLE_SIZE = 32;
+
+    /**
+     * Buffers which have grown beyond this capacity are not reused.
+     */
+    private static final int MAX_BUFFER_CAPACITY = 64 * 1024;
+
     /**
      * Constant symbol table to ensure efficient treatment of handler states.
+     * Every supported element name resolves with a single lookup to an
+     * {@link Element} which combines all actions for that element.
      */
-    private final Map<String, ContentSetter> contentSetters;
-    private final Map<String, AttributeSetter> attributeSetters;
+    private final Element[] elements = new Element[TABLE_SIZE];
 
     /**
-     * Reference is never {@code null}. Visibility must be package-private to
-     * ensure efficiency of inner classes.
+     * Reference is never {@code null} while parsing. Visibility must be
+     * package-private to ensure efficiency of inner classes.
      */
-    final RSSFeed feed = new RSSFeed();
+    RSSFeed feed;
 
     /**
      * Reference is {@code null} unless started to parse &lt;item&gt; element.
@@ -54,15 +70,59 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
     RSSItem item;
 
     /**
-     * If not {@code null}, then buffer the characters inside an XML text element.
+     * If not {@code null}, then hand RSS items to this sink instead of adding
+     * them to {@link #feed}.
+     */
+    private RSSItemSink sink;
+
+    /**
+     * Reusable buffer for the characters inside an XML text element.
+     */
+    private StringBuilder buffer = new StringBuilder(256);
+
+    /**
+     * If {@code true}, then buffer the characters inside an XML text element.
+     */
+    private boolean buffering;
+
+    /**
+     * Actions of the element whose content is buffered. The content setter
+     * is the dispatcher to set either {@link #feed} or {@link #item} fields.
      */
-    private StringBuilder buffer;
+    private Element current;
 
     /**
-     * Dispatcher to set either {@link #feed} or {@link #item} fields.
+     * Depth of the current XML element; the document element has depth one.
      */
-    private ContentSetter contentSetter;
-    private AttributeSetter attributeSetter;
+    private int depth;
+
+    /**
+     * Depth of the unselected RSS element whose subtree is ignored, zero if
+     * none is.
+     */
+    private int skipped;
+
+    /**
+     * Table to deduplicate low-cardinality strings across items and feeds.
+     */
+    private final StringTable strings = StringTable.shared();
+
+    /**
+     * Thrown when the item sink has requested to stop parsing. Parsers catch
+     * it and return the RSS feed parsed so far.
+     */
+    static final class Stop extends org.xml.sax.SAXException {
+
+        /**
+         * Unsupported serialization
+         */
+        private static final long serialVersionUID = 1L;
+
+        Stop() {
+            super("RSS item sink stopped parsing");
+        }
+
+    }
 
     /**
      * Interface to store information about RSS elements.
@@ -70,6 +130,60 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
     private static interface Setter {
     }
 
+    /**
+     * Precomputed actions for a supported XML element name. Elements whose
+     * names share a slot in the dispatch table are chained.
+     */
+    private static final class Element {
+
+        final String qname;
+        final ContentSetter content;
+        final AttributeSetter attributes;
+
+        /**
+         * {@code true} if the element starts a new RSS item.
+         */
+        final boolean item;
+
+        /**
+         * {@code true} if the element content repeats across RSS items and is
+         * deduplicated through the {@link StringTable}.
+         */
+        final boolean intern;
+
+        /**
+         * {@code true} if the element has not been selected, so that neither
+         * it nor any of its children contribute to the RSS feed.
+         */
+        final boolean skip;
+
+        Element next;
+
+        Element(String qname, ContentSetter content, AttributeSetter attributes, boolean item,
+                 boolean intern) {
+            this.qname = qname;
+            this.content = content;
+            this.attributes = attributes;
+            this.item = item;
+            this.intern = intern;
+            this.skip = false;
+        }
+
+        /**
+         * Instantiate the actions of an RSS element which has not been
+         * selected.
+         */
+        Element(String qname) {
+            this.qname = qname;
+            this.content = null;
+            this.attributes = null;
+            this.item = false;
+            this.intern = false;
+            this.skip = true;
+        }
+
+    }
+
     /**
      * Closure to change fields in POJOs which store RSS content.
      */
@@ -164,12 +278,18 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
      * Setter for RSS &lt;pubDate&gt; elements inside a &lt;channel&gt; or an
      * &lt;item&gt; element. The title of the RSS feed is set only if
      * {@link #item} is {@code null}. Otherwise, the title of the RSS
-     * {@link #item} is set.
+     * {@link #item} is set. Invalid dates are ignored, so that the date stays
+     * {@code null} instead of failing the whole feed.
      */
     private final ContentSetter SET_PUBDATE = new ContentSetter() {
         @Override
         public void set(String pubDate) {
-            final java.util.Date date = Dates.parseRfc822(pubDate);
+            final long millis = Dates.parseMillis(pubDate);
+            if (millis == Dates.INVALID) {
+                return;
+            }
+
+            final java.util.Date date = new java.util.Date(millis);
             if (item == null) {
                 feed.setPubDate(date);
             } else {
@@ -178,10 +298,39 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
         }
     };
 
+    /**
+     * Setter for the RSS &lt;ttl&gt; element inside a &lt;channel&gt; element.
+     * Invalid values are ignored.
+     */
+    private final ContentSetter SET_TTL = new ContentSetter() {
+        @Override
+        public void set(String ttl) {
+            if (item == null) {
+                try {
+                    feed.setTtl(Integer.parseInt(ttl.trim()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+    };
+
+    /**
+     * Setter for an RSS &lt;guid&gt; element inside an &lt;item&gt; element.
+     */
+    private final ContentSetter SET_GUID = new ContentSetter() {
+        @Override
+        public void set(String guid) {
+            if (item != null) {
+                item.setGuid(guid);
+            }
+        }
+    };
+
     private final AttributeSetter SET_SOURCEURL = new AttributeSetter() {
         @Override
         public void set(Attributes attributes) {
-            item.setSourceUrl(Uri.parse(attributes.getValue("url")));
+            final String url = attributes.getValue("url");
+            item.setSourceUrl(Uri.parse(url == null ? null : strings.intern(url)));
         }
     };
 
@@ -260,18 +409,119 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
         this.config = config;
 
         // initialize dispatchers to manage the state of the SAX handler
-        contentSetters = new java.util.HashMap<String, ContentSetter>();
-        contentSetters.put("title", SET_TITLE);
-        contentSetters.put("description", SET_DESCRIPTION);
-        contentSetters.put("content:encoded", SET_CONTENT);
-        contentSetters.put("link", SET_LINK);
-        contentSetters.put("category", ADD_CATEGORY);
-        contentSetters.put("pubDate", SET_PUBDATE);
-        contentSetters.put("source", SET_SOURCENAME);
-
-        attributeSetters = new HashMap<String, AttributeSetter>();
-        attributeSetters.put("media:thumbnail", ADD_MEDIA_THUMBNAIL);
-        attributeSetters.put("source", SET_SOURCEURL);
+        // elements which have not been selected are never buffered
+        select(RSSConfig.TITLE, new Element("title", SET_TITLE, null, false, false));
+        select(RSSConfig.DESCRIPTION, new Element("description", SET_DESCRIPTION, null, false, false));
+        select(RSSConfig.CONTENT, new Element("content:encoded", SET_CONTENT, null, false, false));
+        select(RSSConfig.LINK, new Element("link", SET_LINK, null, false, false));
+        select(RSSConfig.CATEGORIES, new Element("category", ADD_CATEGORY, null, false, true));
+        select(RSSConfig.PUBDATE, new Element("pubDate", SET_PUBDATE, null, false, false));
+        select(RSSConfig.SOURCE, new Element("source", SET_SOURCENAME, SET_SOURCEURL, false, true));
+        select(RSSConfig.THUMBNAILS, new Element("media:thumbnail", null, ADD_MEDIA_THUMBNAIL, false,
+                false));
+        select(RSSConfig.GUID, new Element("guid", SET_GUID, null, false, false));
+        put(new Element("ttl", SET_TTL, null, false, false));
+        put(new Element(RSS_ITEM, null, null, true, false));
+        put(new Element(RSS_CHANNEL, null, null, false, false));
+    }
+
+    private boolean isSelected(int field) {
+        return (config.fields & field) != 0;
+    }
+
+    /**
+     * Register the actions of an RSS element if its field has been selected,
+     * otherwise register the element to be skipped.
+     */
+    private void select(int field, Element element) {
+        put(isSelected(field) ? element : new Element(element.qname));
+    }
+
+    /**
+     * Returns the dispatch table slot of an element name. The slot depends only
+     * on the length and the first and last characters of the name, so neither
+     * the name's hash code nor any other per-character work is needed.
+     */
+    private static int slot(String qname) {
+        final int length = qname.length();
+        if (length == 0) {
+            return 0;
+        }
+        return ((length << 3) ^ qname.charAt(0) ^ (qname.charAt(length - 1) << 1))
+                & (TABLE_SIZE - 1);
+    }
+
+    private void put(Element element) {
+        final int slot = slot(element.qname);
+        element.next = elements[slot];
+        elements[slot] = element;
+    }
+
+    /**
+     * Returns the actions for the specified element name or {@code null} if the
+     * element is not supported.
+     */
+    private Element lookup(String qname) {
+        for (Element element = elements[slot(qname)]; element != null; element = element.next) {
+            if (element.qname.equals(qname)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Start a new RSS feed. State left behind by a previous, possibly failed,
+     * parse is never carried over.
+     */
+    @Override
+    public void startDocument() {
+        feed = new RSSFeed(config.itemAvg, config.fields);
+        item = null;
+        buffering = false;
+        current = null;
+        depth = 0;
+        skipped = 0;
+    }
+
+    /**
+     * Trim the item storage to the number of parsed RSS items.
+     */
+    @Override
+    public void endDocument() {
+        feed.trimToSize();
+    }
+
+    /**
+     * Release all references to parsed data and to the item sink so that a
+     * reused handler does not retain the last RSS feed.
+     */
+    void reset() {
+        startDocument();
+        feed = null;
+        sink = null;
+        if (buffer.capacity() > MAX_BUFFER_CAPACITY) {
+            buffer = new StringBuilder(256);
+        } else {
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Hand RSS items of the next XML document to the specified sink. A
+     * {@code null} sink collects the RSS items in the RSS feed.
+     */
+    void setSink(RSSItemSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Never resolve external entities such as DTDs. An empty input source
+     * prevents the SAX parser from fetching them over the network.
+     */
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) {
+        return new InputSource(new StringReader(""));
     }
 
     /**
@@ -283,50 +533,94 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
 
     /**
      * Identify the appropriate dispatcher which should be used to store XML data
-     * in a POJO. Unsupported RSS 2.0 elements are currently ignored.
+     * in a POJO. Unsupported RSS 2.0 elements are currently ignored without
+     * allocating any objects.
      */
     @Override
     public void startElement(String nsURI, String localName, String qname,
                              org.xml.sax.Attributes attributes) {
-        // Lookup dispatcher in hash table
-        contentSetter = contentSetters.get(qname);
-        attributeSetter = attributeSetters.get(qname);
-        if (contentSetter == null) {
-            if (RSS_ITEM.equals(qname)) {
-                item = new RSSItem(config.categoryAvg, config.thumbnailAvg);
+        depth++;
+        if (skipped != 0) {
+            return;
+        }
+
+        // Lookup dispatcher in symbol table
+        final Element element = lookup(qname);
+        if (element == null) {
+            buffering = false;
+            return;
+        }
+        if (element.skip) {
+            // ignore the whole subtree, unless it is the document element
+            buffering = false;
+            if (depth > 1) {
+                skipped = depth;
             }
-        } else {
-            // Buffer supported RSS content data
-            buffer = new StringBuilder();
+            return;
         }
-        if (attributeSetter != null) {
-            attributeSetter.set(attributes);
+
+        if (element.item) {
+            item = new RSSItem(config.categoryAvg, config.thumbnailAvg, config.fields);
+        }
+        if (element.attributes != null) {
+            element.attributes.set(attributes);
+        }
+
+        current = element;
+        buffering = element.content != null;
+        if (buffering) {
+            // Buffer supported RSS content data
+            buffer.setLength(0);
         }
     }
 
     @Override
-    public void endElement(String nsURI, String localName, String qname) {
-        if (isBuffering()) {
-            // set field of an RSS feed or RSS item
-            contentSetter.set(buffer.toString());
+    public void endElement(String nsURI, String localName, String qname) throws Stop {
+        if (skipped != 0) {
+            if (depth-- == skipped) {
+                skipped = 0;
+            }
+            return;
+        }
 
-            // clear buffer
-            buffer = null;
+        depth--;
+        if (buffering) {
+            // set field of an RSS feed or RSS item
+            buffering = false;
+            current.content.set(current.intern ? strings.intern(buffer) : buffer.toString());
         } else if (RSS_ITEM.equals(qname)) {
-            feed.addItem(item);
+            final RSSItem parsed = item;
 
             // (re)enter <channel> scope
             item = null;
+
+            if (sink == null) {
+                feed.addItem(parsed);
+            } else if (!sink.item(parsed)) {
+                throw new Stop();
+            }
         }
     }
 
     @Override
     public void characters(char ch[], int start, int length) {
-        if (isBuffering()) {
+        if (buffering) {
             buffer.append(ch, start, length);
         }
     }
 
+    /**
+     * Determines if the handler ignores the subtree of the element which has
+     * just been started, because it is an RSS element which has not been
+     * selected. Unknown elements such as &lt;media:group&gt; are never
+     * ignored, since they may contain selected ones. Parsers which are able to
+     * skip whole subtrees use this to avoid reporting their events, but must
+     * still report the end of the element.
+     */
+    boolean isSkipping() {
+        return skipped == depth && skipped != 0;
+    }
+
     /**
      * Determines if the SAX parser is ready to receive data inside an XML element
      * such as &lt;title&gt; or &lt;description&gt;.
@@ -335,7 +629,7 @@ class RSSHandler extends org.xml.sax.helpers.DefaultHandler {
      *         element, {@code false} otherwise
      */
     boolean isBuffering() {
-        return buffer != null && contentSetter != null;
+        return buffering;
     }
 
 }
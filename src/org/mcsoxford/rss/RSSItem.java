@@ -28,13 +28,15 @@ import java.util.List;
 public class RSSItem extends RSSBase {
     private final List<MediaThumbnail> thumbnails;
     private String content;
+    private String guid;
     private Uri sourceUrl;
     private String sourceName;
 
     /* Internal constructor for RSSHandler */
-    RSSItem(byte categoryCapacity, byte thumbnailCapacity) {
-        super(categoryCapacity);
-        thumbnails = new java.util.ArrayList<MediaThumbnail>(thumbnailCapacity);
+    RSSItem(byte categoryCapacity, byte thumbnailCapacity, int fields) {
+        super(categoryCapacity, fields);
+        thumbnails = isLoaded(RSSConfig.THUMBNAILS)
+                ? new java.util.ArrayList<MediaThumbnail>(thumbnailCapacity) : null;
     }
 
     /* Internal method for RSSHandler */
@@ -45,8 +47,12 @@ public class RSSItem extends RSSBase {
     /**
      * Returns an unmodifiable list of thumbnails. The return value is never
      * {@code null}. Images are in order of importance.
+     *
+     * @throws IllegalStateException if {@link RSSConfig#THUMBNAILS} has not
+     *         been selected
      */
     public java.util.List<MediaThumbnail> getThumbnails() {
+        checkLoaded(RSSConfig.THUMBNAILS);
         return java.util.Collections.unmodifiableList(thumbnails);
     }
 
@@ -54,8 +60,11 @@ public class RSSItem extends RSSBase {
      * Returns the value of the optional &lt;content:encoded&gt; tag
      *
      * @return string value of the element data
+     * @throws IllegalStateException if {@link RSSConfig#CONTENT} has not been
+     *         selected
      */
     public String getContent() {
+        checkLoaded(RSSConfig.CONTENT);
         return content;
     }
 
@@ -64,7 +73,30 @@ public class RSSItem extends RSSBase {
         this.content = content;
     }
 
+    /**
+     * Returns the value of the optional &lt;guid&gt; tag, which identifies
+     * the item within its feed.
+     *
+     * @return string value of the element data
+     * @throws IllegalStateException if {@link RSSConfig#GUID} has not been
+     *         selected
+     */
+    public String getGuid() {
+        checkLoaded(RSSConfig.GUID);
+        return guid;
+    }
+
+    /* Internal method for RSSHandler */
+    void setGuid(String guid) {
+        this.guid = guid;
+    }
+
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#SOURCE} has not been
+     *         selected
+     */
     public Uri getSourceUrl() {
+        checkLoaded(RSSConfig.SOURCE);
         return sourceUrl;
     }
 
@@ -72,7 +104,12 @@ public class RSSItem extends RSSBase {
         this.sourceUrl = sourceUrl;
     }
 
+    /**
+     * @throws IllegalStateException if {@link RSSConfig#SOURCE} has not been
+     *         selected
+     */
     public String getSourceName() {
+        checkLoaded(RSSConfig.SOURCE);
         return sourceName;
     }
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+/**
+ * Callback which receives RSS items one at a time while an RSS feed is being
+ * parsed. Items handed to a sink are not collected in the {@link RSSFeed}.
+ *
+ * @author Mr Horn
+ * @see RSSParserSPI#parse(java.io.InputStream, RSSItemSink)
+ */
+public interface RSSItemSink {
+
+  /**
+   * Receive the next RSS item as soon as its &lt;item&gt; element has been
+   * parsed completely.
+   *
+   * @param item fully parsed RSS item
+   * @return {@code true} to continue parsing, {@code false} to stop parsing
+   *         without reading the rest of the RSS feed
+   */
+  boolean item(RSSItem item);
+
+}
@@ -15,14 +15,23 @@
  */
 package org.mcsoxford.rss;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Asynchronous loader for RSS feeds. RSS feeds can be loaded in FIFO order or
@@ -33,10 +42,28 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <li>{@link #fifo(int)}</li>
  * <li>{@link #priority()}</li>
  * <li>{@link #priority(int)}</li>
+ * <li>{@link #fifo(int, int)}</li>
+ * <li>{@link #priority(int, int)}</li>
+ * <li>{@link #fifo(int, int, int, Executor)}</li>
+ * <li>{@link #priority(int, int, int, Executor)}</li>
  * </ul>
  * 
+ * Loaders with more than one worker load several RSS feeds in parallel, but
+ * never more than a fixed number of RSS feeds from the same host at a time.
+ * 
+ * Requests for an RSS feed URI which is already queued or loading join the
+ * pending load instead of loading the RSS feed again.
+ * 
  * Completed RSS feed loads can be retrieved with {@link RSSLoader#take()},
  * {@link RSSLoader#poll()} or {@link RSSLoader#poll(long, TimeUnit)}.
+ * Alternatively, a {@link Listener} can be notified on a caller-supplied
+ * {@link Executor}, either for a single load with
+ * {@link #load(String, int, Listener, Executor)} or for all loads with
+ * {@link #setListener(Listener, Executor)}. Loads which notify a listener are
+ * not placed on the completion queue. The completion queue is unbounded
+ * unless a result capacity and an {@link Overflow} policy are specified with
+ * {@link #fifo(int, int, Overflow, int)} or
+ * {@link #priority(int, int, Overflow, int)}.
  * 
  * <p>
  * <b>Usage Example</b>
@@ -75,6 +102,96 @@ public class RSSLoader {
    */
   private final static String DEFAULT_THREAD_NAME = "Asynchronous RSS feed loader";
 
+  /**
+   * Default maximum number of RSS feeds which are loaded concurrently from the
+   * same host by a loader with several workers.
+   */
+  public final static int DEFAULT_HOST_LIMIT = 2;
+
+  /**
+   * Callback which is notified when an RSS feed load has completed. Listeners
+   * run on the executor they have been registered with.
+   */
+  public interface Listener {
+
+    /**
+     * The RSS feed with the specified URI has been loaded successfully.
+     */
+    void loaded(String uri, RSSFeed feed);
+
+    /**
+     * The RSS feed with the specified URI could not be loaded.
+     * 
+     * @param cause either an {@link RSSException} or a runtime exception such
+     *          as {@link RSSFault}
+     */
+    void failed(String uri, Exception cause);
+
+  }
+
+  /**
+   * Policy for completed RSS feed loads which do not fit on a full completion
+   * queue.
+   */
+  public enum Overflow {
+
+    /** Block the loading worker until the consumer makes room */
+    BLOCK,
+
+    /** Discard the oldest completed load to make room */
+    DROP_OLDEST,
+
+    /** Discard the completed load which does not fit */
+    DROP_NEWEST
+
+  }
+
+  /**
+   * A listener and the executor to notify it on.
+   */
+  private static final class Subscription {
+
+    final Listener listener;
+
+    /** {@code null} to notify the listener on the loading thread */
+    final Executor executor;
+
+    Subscription(Listener listener, Executor executor) {
+      if (listener == null) {
+        throw new IllegalArgumentException("Listener must not be null.");
+      }
+
+      this.listener = listener;
+      this.executor = executor;
+    }
+
+    void notify(final String uri, final RSSFeed feed, final Exception cause) {
+      final Runnable notification = new Runnable() {
+        @Override
+        public void run() {
+          if (cause == null) {
+            listener.loaded(uri, feed);
+          } else {
+            listener.failed(uri, cause);
+          }
+        }
+      };
+
+      if (executor == null) {
+        notification.run();
+      } else {
+        executor.execute(notification);
+      }
+    }
+
+  }
+
+  /**
+   * Listener for all loads which have no listener of their own, {@code null}
+   * to place completed loads on the {@link #out} queue.
+   */
+  private volatile Subscription subscription;
+
   /**
    * Arrange incoming load requests on this queue.
    */
@@ -83,12 +200,43 @@ public class RSSLoader {
   /**
    * Once the an RSS feed has completed loading, place the result on this queue.
    */
-  private final BlockingQueue<RSSFuture> out;
+  private final BlockingQueue<Interest> out;
+
+  /**
+   * What to do when {@link #out} is full.
+   */
+  private final Overflow overflow;
+
+  /**
+   * Number of completed loads discarded because {@link #out} was full.
+   */
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Number of listener notifications which have failed with a runtime
+   * exception.
+   */
+  private final AtomicLong faults = new AtomicLong();
+
+  /**
+   * RSS feed loads which are queued or loading, by URI. Guarded by itself.
+   */
+  private final Map<String, RSSFuture> inFlight = new HashMap<String, RSSFuture>();
 
   /**
    * Flag changes are visible after operations on {@link #in} queue.
    */
-  private boolean stopped;
+  private volatile boolean stopped;
+
+  /**
+   * Maximum number of RSS feeds which are loaded concurrently from one host.
+   */
+  private final int hostLimit;
+
+  /**
+   * Hosts which RSS feeds are currently loaded from. Guarded by itself.
+   */
+  private final Map<String, Host> hosts = new HashMap<String, Host>();
 
   /**
    * Create an object which can load RSS feeds asynchronously in FIFO order.
@@ -96,7 +244,8 @@ public class RSSLoader {
    * @see #fifo(int)
    */
   public static RSSLoader fifo() {
-    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>());
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(), 1, 1, null,
+        Integer.MAX_VALUE, Overflow.BLOCK, null);
   }
 
   /**
@@ -106,7 +255,86 @@ public class RSSLoader {
    *          expected number of URIs to be loaded at a given time
    */
   public static RSSLoader fifo(int capacity) {
-    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity));
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity), 1, 1, null,
+        Integer.MAX_VALUE, Overflow.BLOCK, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel, starting
+   * them in FIFO order. At most {@link #DEFAULT_HOST_LIMIT} RSS feeds are
+   * loaded concurrently from the same host.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   */
+  public static RSSLoader fifo(int capacity, int workers) {
+    return fifo(capacity, workers, DEFAULT_HOST_LIMIT, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel, starting
+   * them in FIFO order.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   * @param hostLimit
+   *          maximum number of RSS feeds loaded concurrently from one host
+   * @param executor
+   *          executor which runs the workers, or {@code null} to start a
+   *          dedicated thread per worker. Each worker occupies an executor
+   *          thread until {@link #stop()} is called.
+   */
+  public static RSSLoader fifo(int capacity, int workers, int hostLimit,
+      Executor executor) {
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity), workers,
+        hostLimit, executor, Integer.MAX_VALUE, Overflow.BLOCK, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel, starting
+   * them in FIFO order, and which keeps at most {@code resultCapacity}
+   * completed loads that have not been retrieved yet.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   * @param overflow
+   *          what to do with completed loads once the completion queue is full
+   * @param resultCapacity
+   *          maximum number of completed loads on the completion queue
+   */
+  public static RSSLoader fifo(int capacity, int workers, Overflow overflow,
+      int resultCapacity) {
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity), workers,
+        DEFAULT_HOST_LIMIT, null, resultCapacity, overflow, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel with the
+   * specified reader, starting them in FIFO order. At most
+   * {@link #DEFAULT_HOST_LIMIT} RSS feeds are loaded concurrently from the
+   * same host.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   * @param reader
+   *          reader shared by all workers, e.g. one with an RSS configuration
+   *          and validators
+   */
+  public static RSSLoader fifo(int capacity, int workers, RSSReader reader) {
+    if (reader == null) {
+      throw new IllegalArgumentException("RSS reader must not be null.");
+    }
+
+    return new RSSLoader(new LinkedBlockingQueue<RSSFuture>(capacity), workers,
+        DEFAULT_HOST_LIMIT, null, Integer.MAX_VALUE, Overflow.BLOCK, reader);
   }
 
   /**
@@ -115,7 +343,8 @@ public class RSSLoader {
    * @see #priority(int)
    */
   public static RSSLoader priority() {
-    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>());
+    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(), 1, 1, null,
+        Integer.MAX_VALUE, Overflow.BLOCK, null);
   }
 
   /**
@@ -125,22 +354,111 @@ public class RSSLoader {
    *          expected number of URIs to be loaded at a given time
    */
   public static RSSLoader priority(int capacity) {
-    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(capacity));
+    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(capacity), 1, 1, null,
+        Integer.MAX_VALUE, Overflow.BLOCK, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel, starting
+   * them based on priority. At most {@link #DEFAULT_HOST_LIMIT} RSS feeds are
+   * loaded concurrently from the same host.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   */
+  public static RSSLoader priority(int capacity, int workers) {
+    return priority(capacity, workers, DEFAULT_HOST_LIMIT, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel, starting
+   * them based on priority.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   * @param hostLimit
+   *          maximum number of RSS feeds loaded concurrently from one host
+   * @param executor
+   *          executor which runs the workers, or {@code null} to start a
+   *          dedicated thread per worker. Each worker occupies an executor
+   *          thread until {@link #stop()} is called.
+   */
+  public static RSSLoader priority(int capacity, int workers, int hostLimit,
+      Executor executor) {
+    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(capacity), workers,
+        hostLimit, executor, Integer.MAX_VALUE, Overflow.BLOCK, null);
+  }
+
+  /**
+   * Create an object which can load several RSS feeds in parallel, starting
+   * them based on priority, and which keeps at most {@code resultCapacity}
+   * completed loads that have not been retrieved yet.
+   * 
+   * @param capacity
+   *          expected number of URIs to be loaded at a given time
+   * @param workers
+   *          number of RSS feeds which are loaded in parallel
+   * @param overflow
+   *          what to do with completed loads once the completion queue is full
+   * @param resultCapacity
+   *          maximum number of completed loads on the completion queue
+   */
+  public static RSSLoader priority(int capacity, int workers, Overflow overflow,
+      int resultCapacity) {
+    return new RSSLoader(new PriorityBlockingQueue<RSSFuture>(capacity), workers,
+        DEFAULT_HOST_LIMIT, null, resultCapacity, overflow, null);
   }
 
   /**
    * Instantiate an object which can load RSS feeds asynchronously. The provided
    * {@link BlockingQueue} implementation determines the load behaviour.
    * 
+   * @param workers number of RSS feeds which are loaded in parallel
+   * @param hostLimit maximum number of RSS feeds loaded concurrently from one
+   *          host
+   * @param executor executor which runs the workers, or {@code null} to start
+   *          a dedicated thread per worker
+   * @param resultCapacity maximum number of completed loads on the completion
+   *          queue
+   * @param overflow what to do with completed loads once the completion queue
+   *          is full
+   * @param reader reader shared by all workers, or {@code null} for a reader
+   *          with the default RSS configuration
    * @see LinkedBlockingQueue
    * @see PriorityBlockingQueue
    */
-  RSSLoader(BlockingQueue<RSSFuture> in) {
+  RSSLoader(BlockingQueue<RSSFuture> in, int workers, int hostLimit,
+      Executor executor, int resultCapacity, Overflow overflow, RSSReader reader) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("RSS loader needs at least one worker.");
+    } else if (hostLimit < 1) {
+      throw new IllegalArgumentException("Host limit must be positive.");
+    } else if (overflow == null) {
+      throw new IllegalArgumentException("Overflow policy must not be null.");
+    }
+
     this.in = in;
-    this.out = new LinkedBlockingQueue<RSSFuture>();
+    this.out = new LinkedBlockingQueue<Interest>(resultCapacity);
+    this.overflow = overflow;
+    this.hostLimit = hostLimit;
 
-    // start separate thread for loading of RSS feeds
-    new Thread(new Loader(new RSSReader()), DEFAULT_THREAD_NAME).start();
+    // start separate workers for loading of RSS feeds which share a reader,
+    // and with it the pooled connections of the shared HTTP client
+    final RSSReader shared = reader == null ? new RSSReader() : reader;
+    for (int i = 0; i < workers; i++) {
+      final Loader loader = new Loader(shared);
+      if (executor == null) {
+        final String name = workers == 1 ? DEFAULT_THREAD_NAME : DEFAULT_THREAD_NAME
+            + " #" + (i + 1);
+        new Thread(loader, name).start();
+      } else {
+        executor.execute(loader);
+      }
+    }
   }
 
   /**
@@ -202,6 +520,10 @@ public class RSSLoader {
    * <p>
    * Completed RSS feed loads can be retrieved by calling {@link #take()}.
    * Alternatively, non-blocking polling is possible with {@link #poll()}.
+   * <p>
+   * If the same URI is already queued or loading, this request joins it. The
+   * returned Future can be cancelled without affecting other requests for the
+   * same URI, and a higher priority moves the queued load forward.
    * 
    * @param uri
    *          RSS feed URI to be loaded
@@ -212,6 +534,49 @@ public class RSSLoader {
    *         {@code null} if scheduling failed
    */
   public Future<RSSFeed> load(String uri, int priority) {
+    return load(uri, priority, /* subscription */null);
+  }
+
+  /**
+   * Loads the specified RSS feed URI asynchronously and notifies the specified
+   * listener when loading has completed, successfully or not. The completed
+   * load is not placed on the completion queue. Otherwise, this method
+   * behaves like {@link #load(String, int)}.
+   * 
+   * @param uri
+   *          RSS feed URI to be loaded
+   * @param priority
+   *          larger integer gives higher priority
+   * @param listener
+   *          callback to notify unless the returned Future is cancelled
+   * @param executor
+   *          executor to notify the listener on, e.g. one which posts to the
+   *          main thread, or {@code null} to notify it on the loading thread
+   * 
+   * @return Future representing the RSS feed scheduled for loading,
+   *         {@code null} if scheduling failed
+   */
+  public Future<RSSFeed> load(String uri, int priority, Listener listener,
+      Executor executor) {
+    return load(uri, priority, new Subscription(listener, executor));
+  }
+
+  /**
+   * Notify the specified listener of all loads which have been requested
+   * without a listener of their own, instead of placing them on the
+   * completion queue.
+   * 
+   * @param listener
+   *          callback to notify, or {@code null} to use the completion queue
+   * @param executor
+   *          executor to notify the listener on, or {@code null} to notify it
+   *          on the loading thread
+   */
+  public void setListener(Listener listener, Executor executor) {
+    subscription = listener == null ? null : new Subscription(listener, executor);
+  }
+
+  private Future<RSSFeed> load(String uri, int priority, Subscription subscription) {
     if (uri == null) {
       throw new IllegalArgumentException("RSS feed URI must not be null.");
     }
@@ -221,15 +586,157 @@ public class RSSLoader {
       return null;
     }
 
-    // flag readings happen-after enqueue
-    final RSSFuture future = new RSSFuture(uri, priority);
-    final boolean ok = in.offer(future);
+    synchronized (inFlight) {
+      final RSSFuture pending = inFlight.get(uri);
+      if (pending != null) {
+        raise(pending, priority);
+        return pending.join(new Interest(pending, subscription));
+      }
+
+      // flag readings happen-after enqueue
+      final RSSFuture future = new RSSFuture(uri, priority);
+      final Interest interest = future.join(new Interest(future, subscription));
+      final boolean ok = in.offer(future);
 
-    if (!ok || stopped) {
-      return null;
+      if (!ok || stopped) {
+        return null;
+      }
+
+      inFlight.put(uri, future);
+      return interest;
+    }
+  }
+
+  /**
+   * Move a queued RSS feed load forward if the specified priority is higher
+   * than its own. Only loads which are still on a {@link PriorityBlockingQueue}
+   * are affected. Guarded by {@link #inFlight}.
+   */
+  private void raise(RSSFuture future, int priority) {
+    if (priority <= future.priority || !(in instanceof PriorityBlockingQueue)) {
+      return;
+    }
+
+    // serialize with deferred RSS feeds being put back on the queue
+    synchronized (hosts) {
+      if (in.remove(future)) {
+        future.priority = priority;
+        in.offer(future);
+      }
     }
+  }
+
+  /**
+   * Withdraw the specified caller's interest in an RSS feed load. The load
+   * itself is cancelled once no caller is interested in it anymore.
+   * 
+   * @return {@code true} if the interest has been withdrawn
+   */
+  boolean cancel(Interest interest) {
+    final RSSFuture future = interest.future;
+    synchronized (inFlight) {
+      if (interest.cancelled || future.closed) {
+        return interest.cancelled;
+      }
+
+      interest.cancelled = true;
+      for (Interest other : future.interests) {
+        if (!other.cancelled) {
+          return true;
+        }
+      }
 
-    return future;
+      if (future.cancel(false)) {
+        future.closed = true;
+        inFlight.remove(future.uri);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Stop accepting new callers for the specified RSS feed load and hand it
+   * to the callers which are still interested.
+   */
+  private void complete(RSSFuture future) {
+    final List<Interest> interests;
+    synchronized (inFlight) {
+      future.closed = true;
+      if (inFlight.get(future.uri) == future) {
+        inFlight.remove(future.uri);
+      }
+      interests = new ArrayList<Interest>(future.interests);
+    }
+
+    final RSSFeed feed = future.feed();
+    final Exception cause = future.cause();
+    final Subscription shared = subscription;
+    for (Interest interest : interests) {
+      if (interest.cancelled) {
+        continue;
+      }
+
+      // a failing listener or executor must neither starve the other callers
+      // nor stop the worker
+      try {
+        if (interest.subscription != null) {
+          interest.subscription.notify(future.uri, feed, cause);
+        } else if (shared != null) {
+          shared.notify(future.uri, feed, cause);
+        } else if (cause == null) {
+          // only successfully loaded RSS feeds can be consumed
+          publish(interest);
+        }
+      } catch (RuntimeException e) {
+        faults.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Place a completed load on the completion queue according to the
+   * {@link Overflow} policy.
+   */
+  private void publish(Interest interest) {
+    switch (overflow) {
+    case BLOCK:
+      try {
+        out.put(interest);
+      } catch (InterruptedException e) {
+        dropped.incrementAndGet();
+        // Restore the interrupted status
+        Thread.currentThread().interrupt();
+      }
+      break;
+    case DROP_OLDEST:
+      while (!out.offer(interest)) {
+        if (out.poll() != null) {
+          dropped.incrementAndGet();
+        }
+      }
+      break;
+    case DROP_NEWEST:
+      if (!out.offer(interest)) {
+        dropped.incrementAndGet();
+      }
+      break;
+    }
+  }
+
+  /**
+   * Returns the number of completed RSS feed loads which have been discarded
+   * because the completion queue was full.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Returns the number of listener notifications which have thrown a runtime
+   * exception on the loading thread, or whose executor has rejected them.
+   */
+  public long getFaultCount() {
+    return faults.get();
   }
 
   /**
@@ -278,6 +785,67 @@ public class RSSLoader {
     return out.poll(timeout, unit);
   }
 
+  /**
+   * RSS feed loads in progress and deferred for a single host. Guarded by
+   * {@link #hosts}.
+   */
+  private static final class Host {
+
+    int active;
+    final LinkedList<RSSFuture> deferred = new LinkedList<RSSFuture>();
+
+  }
+
+  /**
+   * Reserve a load slot for the host of the specified RSS feed. If the host
+   * has reached its limit, the RSS feed is deferred until a slot is released.
+   * 
+   * @return {@code true} if the RSS feed can be loaded now
+   */
+  private boolean acquire(RSSFuture future) {
+    synchronized (hosts) {
+      Host host = hosts.get(future.host);
+      if (host == null) {
+        host = new Host();
+        hosts.put(future.host, host);
+      }
+
+      if (host.active >= hostLimit) {
+        host.deferred.add(future);
+        return false;
+      }
+
+      host.active++;
+      return true;
+    }
+  }
+
+  /**
+   * Release the load slot of the specified host. The next deferred RSS feed of
+   * that host is put back on the {@link #in} queue so that it is started in
+   * the usual order. If that is not possible because the loader is stopping
+   * or the queue is full, the slot is handed over to the deferred RSS feed.
+   * 
+   * @return the deferred RSS feed which now holds the slot or {@code null}
+   */
+  private RSSFuture release(String name) {
+    synchronized (hosts) {
+      final Host host = hosts.get(name);
+      host.active--;
+
+      final RSSFuture next = host.deferred.poll();
+      if (next != null && (stopped || !in.offer(next))) {
+        host.active++;
+        return next;
+      }
+
+      if (host.active == 0 && host.deferred.isEmpty()) {
+        hosts.remove(name);
+      }
+      return null;
+    }
+  }
+
   /**
    * Internal consumer of RSS feed URIs stored in the blocking queue.
    */
@@ -297,38 +865,57 @@ public class RSSLoader {
     public void run() {
       try {
         RSSFuture future = null;
-        RSSFeed feed;
         while ((future = in.take()) != SENTINEL) {
-
-          if (future.status.compareAndSet(RSSFuture.READY, RSSFuture.LOADING)) {
-            try {
-              // perform loading outside of locked region
-              feed = reader.load(future.uri);
-
-              // set successfully loaded RSS feed
-              future.set(feed, /* error */null);
-
-              // enable caller to consume the loaded RSS feed
-              out.add(future);
-            } catch (RSSException e) {
-              // throw ExecutionException when calling RSSFuture::get()
-              future.set(/* feed */null, e);
-            } catch (RSSFault e) {
-              // throw ExecutionException when calling RSSFuture::get()
-              future.set(/* feed */null, e);
-            } finally {
-              // RSSFuture::isDone() returns true even if an error occurred
-              future.status.compareAndSet(RSSFuture.LOADING, RSSFuture.LOADED);
-            }
+          if (future.status.get() == RSSFuture.READY && acquire(future)) {
+            load(future);
           }
-
         }
+
+        // let the other workers see the sentinel, too
+        in.offer(SENTINEL);
       } catch (InterruptedException e) {
         // Restore the interrupted status
         Thread.currentThread().interrupt();
       }
     }
 
+    /**
+     * Load the RSS feed which holds a slot of its host, followed by the
+     * deferred RSS feeds of the same host which take over that slot.
+     */
+    private void load(RSSFuture future) {
+      while (future != null) {
+        try {
+          loadOne(future);
+        } finally {
+          // never keep the slot of the host, even if loading has failed
+          future = release(future.host);
+        }
+      }
+    }
+
+    private void loadOne(RSSFuture future) {
+      RSSFeed feed;
+      if (future.status.compareAndSet(RSSFuture.READY, RSSFuture.LOADING)) {
+        try {
+          // perform loading outside of locked region
+          feed = reader.load(future.uri);
+
+          // set successfully loaded RSS feed
+          future.set(feed, /* error */null);
+        } catch (RSSException e) {
+          // throw ExecutionException when calling RSSFuture::get()
+          future.set(/* feed */null, e);
+        } catch (RuntimeException e) {
+          // includes RSSFault; never leave callers waiting for a failed load
+          future.set(/* feed */null, e);
+        } finally {
+          // enable callers to consume the loaded RSS feed
+          complete(future);
+        }
+      }
+    }
+
   }
 
   /**
@@ -336,6 +923,62 @@ public class RSSLoader {
    */
   private final static RSSFuture SENTINEL = new RSSFuture(null, /* priority */7);
 
+  /**
+   * A single caller's view of an RSS feed load which may be shared with other
+   * callers of {@link RSSLoader#load(String, int)}. Cancelling it withdraws
+   * only this caller's interest.
+   */
+  final class Interest implements Future<RSSFeed> {
+
+    final RSSFuture future;
+
+    /** Listener of this caller, {@code null} to use the loader's */
+    final Subscription subscription;
+
+    /** Guarded by {@link #inFlight} */
+    volatile boolean cancelled;
+
+    Interest(RSSFuture future, Subscription subscription) {
+      this.future = future;
+      this.subscription = subscription;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return RSSLoader.this.cancel(this);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      return cancelled || future.isDone();
+    }
+
+    @Override
+    public RSSFeed get() throws InterruptedException, ExecutionException {
+      checkCancelled();
+      return future.get();
+    }
+
+    @Override
+    public RSSFeed get(long timeout, TimeUnit unit) throws InterruptedException,
+        ExecutionException, TimeoutException {
+      checkCancelled();
+      return future.get(timeout, unit);
+    }
+
+    private void checkCancelled() {
+      if (cancelled) {
+        throw new CancellationException("RSS feed loading cancelled");
+      }
+    }
+
+  }
+
   /**
    * Offer callers control over the asynchronous loading of an RSS feed.
    */
@@ -350,24 +993,63 @@ public class RSSLoader {
     /** RSS feed URI */
     final String uri;
 
-    /** Larger integer gives higher priority */
-    final int priority;
+    /** Host of the RSS feed URI, never {@code null} unless this is the sentinel */
+    final String host;
+
+    /**
+     * Larger integer gives higher priority. Only changed while this load is
+     * not on the queue.
+     */
+    volatile int priority;
+
+    /** Callers interested in this load. Guarded by {@link RSSLoader#inFlight} */
+    final List<Interest> interests = new ArrayList<Interest>(1);
 
-    AtomicInteger status;
+    /**
+     * {@code true} once no more callers can join this load. Guarded by
+     * {@link RSSLoader#inFlight}
+     */
+    boolean closed;
+
+    /**
+     * State machine {@code READY -> LOADING -> LOADED} or
+     * {@code READY -> CANCELLED}. All transitions are atomic.
+     */
+    final AtomicInteger status;
 
-    boolean waiting;
-    RSSFeed feed;
-    Exception cause;
+    /**
+     * Released once this load has reached {@link #LOADED} or
+     * {@link #CANCELLED}.
+     */
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /** Published by the write to {@link #status} */
+    private RSSFeed feed;
+    private Exception cause;
 
     RSSFuture(String uri, int priority) {
       this.uri = uri;
+      this.host = uri == null ? null : host(uri);
       this.priority = priority;
       status = new AtomicInteger(READY);
     }
 
+    /**
+     * Register another caller which is interested in this load. Guarded by
+     * {@link RSSLoader#inFlight}.
+     */
+    Interest join(Interest interest) {
+      interests.add(interest);
+      return interest;
+    }
+
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-      return isCancelled() || status.compareAndSet(READY, CANCELLED);
+      if (status.compareAndSet(READY, CANCELLED)) {
+        done.countDown();
+        return true;
+      }
+      return isCancelled();
     }
 
     @Override
@@ -381,69 +1063,69 @@ public class RSSLoader {
     }
 
     @Override
-    public synchronized RSSFeed get() throws InterruptedException, ExecutionException {
-      if (feed == null && cause == null) {
-        try {
-          waiting = true;
-
-          // guard against spurious wakeups
-          while (waiting) {
-            wait();
-          }
-        } finally {
-          waiting = false;
-        }
-      }
-
-      if (cause != null) {
-        throw new ExecutionException(cause);
-      }
-
-      return feed;
+    public RSSFeed get() throws InterruptedException, ExecutionException {
+      done.await();
+      return result();
     }
 
+    /**
+     * Wait until the load is done or the timeout, measured with
+     * {@link System#nanoTime()}, elapses. Spurious wakeups do not restart the
+     * wait.
+     */
     @Override
-    public synchronized RSSFeed get(long timeout, TimeUnit unit)
+    public RSSFeed get(long timeout, TimeUnit unit)
         throws InterruptedException, ExecutionException, TimeoutException {
-
-      if (feed == null && cause == null) {
-        try {
-          waiting = true;
-
-          final long timeoutMillis = unit.toMillis(timeout);
-          final long startMillis = System.currentTimeMillis();
-
-          // guard against spurious wakeups
-          while (waiting) {
-            wait(timeoutMillis);
-
-            // check timeout
-            if (System.currentTimeMillis() - startMillis > timeoutMillis) {
-              throw new TimeoutException("RSS feed loading timed out");
-            }
-          }
-        } finally {
-          waiting = false;
-        }
+      if (!done.await(timeout, unit)) {
+        throw new TimeoutException("RSS feed loading timed out");
       }
+      return result();
+    }
 
-      if (cause != null) {
+    private RSSFeed result() throws ExecutionException {
+      if (status.get() == CANCELLED) {
+        throw new CancellationException("RSS feed loading cancelled");
+      } else if (cause != null) {
         throw new ExecutionException(cause);
       }
 
       return feed;
     }
 
-    synchronized void set(RSSFeed feed, Exception cause) {
+    /**
+     * Returns the cause of a failed load or {@code null}.
+     */
+    Exception cause() {
+      return status.get() == LOADED ? cause : null;
+    }
+
+    /**
+     * Returns the successfully loaded RSS feed or {@code null}.
+     */
+    RSSFeed feed() {
+      return status.get() == LOADED ? feed : null;
+    }
+
+    /**
+     * Complete a load which is in progress with either an RSS feed or an
+     * error and release all waiting threads.
+     */
+    void set(RSSFeed feed, Exception cause) {
       this.feed = feed;
       this.cause = cause;
-
-      if (waiting) {
-        waiting = false;
-        notifyAll();
+      if (status.compareAndSet(LOADING, LOADED)) {
+        done.countDown();
       }
     }
 
+    /**
+     * Returns the host of the URI or the empty string if it has none.
+     */
+    private static String host(String uri) {
+      final String host = android.net.Uri.parse(uri).getHost();
+      return host == null ? "" : host;
+    }
+
     @Override
     public int compareTo(RSSFuture other) {
       // Note: head of PriorityQueue implementation is the least element
@@ -28,14 +28,37 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
 /**
- * Internal thread-safe RSS parser SPI implementation.
+ * Internal thread-safe RSS parser SPI implementation. Every thread which uses
+ * this parser keeps its own pre-configured XML reader and SAX handler, so
+ * neither the SAX parser factory lookup nor the parser setup is repeated for
+ * every RSS feed.
  * 
  * @author Mr Horn
  */
 class RSSParser implements RSSParserSPI {
 
+  /**
+   * Optional SAX features to disable the loading of external DTDs and
+   * entities which could otherwise trigger network requests while parsing.
+   */
+  private static final String[] EXTERNAL_FEATURES = {
+      "http://xml.org/sax/features/external-general-entities",
+      "http://xml.org/sax/features/external-parameter-entities",
+      "http://apache.org/xml/features/nonvalidating/load-external-dtd" };
+
   private final RSSConfig config;
 
+  /**
+   * Since XML readers are not thread-safe, each thread parses with its own
+   * context.
+   */
+  private final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+    @Override
+    protected Context initialValue() {
+      return new Context(config);
+    }
+  };
+
   /* Internal constructor for RSSReader */
   RSSParser(RSSConfig config) {
     this.config = config;
@@ -51,20 +74,27 @@ class RSSParser implements RSSParserSPI {
    */
   @Override
   public RSSFeed parse(InputStream feed) {
-    try {
-      // Since SAXParserFactory implementations are not guaranteed to be
-      // thread-safe, a new local object is instantiated.
-      final SAXParserFactory factory = SAXParserFactory.newInstance();
-
-      // Support Android 1.6 (see Issue 1)
-      factory.setFeature("http://xml.org/sax/features/namespaces", false);
-      factory.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+    return parse(feed, /* sink */null);
+  }
 
-      final SAXParser parser = factory.newSAXParser();
+  /**
+   * Parses input stream as RSS feed and hands its RSS items to the specified
+   * sink. It is the responsibility of the caller to close the RSS feed input
+   * stream.
+   * 
+   * @param feed RSS 2.0 feed input stream
+   * @param sink receiver of RSS items, {@code null} to collect them in the feed
+   * @return in-memory representation of RSS feed
+   * @throws RSSFault if an unrecoverable parse error occurs
+   */
+  @Override
+  public RSSFeed parse(InputStream feed, RSSItemSink sink) {
+    if (feed == null) {
+      throw new IllegalArgumentException("RSS feed must not be null.");
+    }
 
-      return parse(parser, feed);
-    } catch (ParserConfigurationException e) {
-      throw new RSSFault(e);
+    try {
+      return contexts.get().parse(feed, sink);
     } catch (SAXException e) {
       throw new RSSFault(e);
     } catch (IOException e) {
@@ -73,30 +103,66 @@ class RSSParser implements RSSParserSPI {
   }
 
   /**
-   * Parses input stream as an RSS 2.0 feed.
-   * 
-   * @return in-memory representation of an RSS feed
-   * @throws IllegalArgumentException if either argument is {@code null}
+   * Reusable XML reader and SAX handler of a single thread.
    */
-  private RSSFeed parse(SAXParser parser, InputStream feed)
-      throws SAXException, IOException {
-    if (parser == null) {
-      throw new IllegalArgumentException("RSS parser must not be null.");
-    } else if (feed == null) {
-      throw new IllegalArgumentException("RSS feed must not be null.");
+  private static final class Context {
+
+    private final XMLReader xmlreader;
+    private final RSSHandler handler;
+
+    Context(RSSConfig config) {
+      try {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+        // Support Android 1.6 (see Issue 1)
+        factory.setFeature("http://xml.org/sax/features/namespaces", false);
+        factory.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+
+        final SAXParser parser = factory.newSAXParser();
+        xmlreader = parser.getXMLReader();
+      } catch (ParserConfigurationException e) {
+        throw new RSSFault(e);
+      } catch (SAXException e) {
+        throw new RSSFault(e);
+      }
+
+      for (String feature : EXTERNAL_FEATURES) {
+        try {
+          xmlreader.setFeature(feature, false);
+        } catch (SAXException e) {
+          // unsupported feature, the entity resolver still applies
+        }
+      }
+
+      handler = new RSSHandler(config);
+      xmlreader.setContentHandler(handler);
+      xmlreader.setEntityResolver(handler);
     }
 
-    // SAX automatically detects the correct character encoding from the stream
-    // See also http://www.w3.org/TR/REC-xml/#sec-guessing
-    final InputSource source = new InputSource(feed);
-    final XMLReader xmlreader = parser.getXMLReader();
-    final RSSHandler handler = new RSSHandler(config);
-
-    xmlreader.setContentHandler(handler);
-    xmlreader.parse(source);
+    /**
+     * Parses input stream as an RSS 2.0 feed.
+     * 
+     * @return in-memory representation of an RSS feed
+     */
+    RSSFeed parse(InputStream feed, RSSItemSink sink) throws SAXException,
+        IOException {
+      // SAX automatically detects the correct character encoding from the stream
+      // See also http://www.w3.org/TR/REC-xml/#sec-guessing
+      final InputSource source = new InputSource(feed);
+
+      handler.setSink(sink);
+      try {
+        xmlreader.parse(source);
+        return handler.feed();
+      } catch (RSSHandler.Stop e) {
+        // the sink has received all RSS items it wants
+        return handler.feed();
+      } finally {
+        // do not retain the parsed feed between parses
+        handler.reset();
+      }
+    }
 
-    return handler.feed();
   }
 
 }
-
@@ -33,5 +33,20 @@ public interface RSSParserSPI {
    */
   RSSFeed parse(java.io.InputStream feed);
 
+  /**
+   * Parses an input stream as an RSS feed and hands every RSS item to the
+   * specified sink as soon as it has been parsed. Parsing stops as soon as the
+   * sink returns {@code false}, so the rest of the input stream is not read.
+   * It is the responsibility of the caller to close the specified RSS feed
+   * input stream.
+   * 
+   * @param feed RSS 2.0 feed input stream
+   * @param sink receiver of RSS items
+   * @return in-memory representation of the RSS feed data parsed so far,
+   *         without any RSS items
+   * @throws RSSFault if an unrecoverable parse error occurs
+   */
+  RSSFeed parse(java.io.InputStream feed, RSSItemSink sink);
+
 }
 
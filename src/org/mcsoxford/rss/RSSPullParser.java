@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.xml.sax.Attributes;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Thread-safe RSS parser SPI implementation based on {@link XmlPullParser}.
+ * Unlike the default SAX-based parser, this parser skips the subtrees of RSS
+ * elements which have not been selected in the {@link RSSConfig}, such as
+ * &lt;content:encoded&gt;. Other elements are descended into, since they may
+ * contain selected ones. Both parsers build the same RSS feed. Use it with
+ * {@link RSSReader#RSSReader(org.apache.http.client.HttpClient, RSSParserSPI)}.
+ *
+ * @author Mr Horn
+ */
+public final class RSSPullParser implements RSSParserSPI {
+
+  private final RSSConfig config;
+
+  /**
+   * Instantiate a pull parser which uses the specified configuration to
+   * optimize the initial capacities of collections.
+   */
+  public RSSPullParser(RSSConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Instantiate a pull parser with default configuration values.
+   */
+  public RSSPullParser() {
+    this(new RSSConfig());
+  }
+
+  /**
+   * Parses input stream as RSS feed. It is the responsibility of the caller to
+   * close the RSS feed input stream.
+   *
+   * @param feed RSS 2.0 feed input stream
+   * @return in-memory representation of RSS feed
+   * @throws RSSFault if an unrecoverable parse error occurs
+   */
+  @Override
+  public RSSFeed parse(InputStream feed) {
+    return parse(feed, /* sink */null);
+  }
+
+  /**
+   * Parses input stream as RSS feed and hands its RSS items to the specified
+   * sink. It is the responsibility of the caller to close the RSS feed input
+   * stream.
+   *
+   * @param feed RSS 2.0 feed input stream
+   * @param sink receiver of RSS items, {@code null} to collect them in the feed
+   * @return in-memory representation of RSS feed
+   * @throws RSSFault if an unrecoverable parse error occurs
+   */
+  @Override
+  public RSSFeed parse(InputStream feed, RSSItemSink sink) {
+    if (feed == null) {
+      throw new IllegalArgumentException("RSS feed must not be null.");
+    }
+
+    final RSSHandler handler = new RSSHandler(config);
+    try {
+      // Pull parsers are not thread-safe, so a new local object is instantiated
+      final XmlPullParser parser = android.util.Xml.newPullParser();
+      parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+
+      // Detect the character encoding from the stream
+      parser.setInput(feed, null);
+
+      handler.setSink(sink);
+      handler.startDocument();
+      parse(parser, handler);
+      handler.endDocument();
+      return handler.feed();
+    } catch (RSSHandler.Stop e) {
+      // the sink has received all RSS items it wants
+      return handler.feed();
+    } catch (XmlPullParserException e) {
+      throw new RSSFault(e);
+    } catch (IOException e) {
+      throw new RSSFault(e);
+    }
+  }
+
+  /**
+   * Translate pull parser events into {@link RSSHandler} callbacks so that
+   * both parser implementations share the same element dispatch. The events
+   * inside subtrees which the handler ignores are never reported.
+   */
+  private static void parse(XmlPullParser parser, RSSHandler handler)
+      throws XmlPullParserException, IOException, RSSHandler.Stop {
+    final Attributes attributes = new PullAttributes(parser);
+    final int[] startAndLength = new int[2];
+
+    int event = parser.getEventType();
+    while (event != XmlPullParser.END_DOCUMENT) {
+      switch (event) {
+      case XmlPullParser.START_TAG:
+        final String name = parser.getName();
+        handler.startElement(null, null, name, attributes);
+        if (handler.isSkipping()) {
+          skip(parser);
+          handler.endElement(null, null, name);
+        }
+        break;
+      case XmlPullParser.END_TAG:
+        handler.endElement(null, null, parser.getName());
+        break;
+      case XmlPullParser.TEXT:
+        if (handler.isBuffering()) {
+          final char[] text = parser.getTextCharacters(startAndLength);
+          handler.characters(text, startAndLength[0], startAndLength[1]);
+        }
+        break;
+      default:
+        break;
+      }
+      event = parser.next();
+    }
+  }
+
+  /**
+   * Advance the parser to the end tag which matches the current start tag
+   * without reporting any of the nested events.
+   */
+  private static void skip(XmlPullParser parser) throws XmlPullParserException,
+      IOException {
+    int depth = 1;
+    while (depth != 0) {
+      switch (parser.next()) {
+      case XmlPullParser.START_TAG:
+        depth++;
+        break;
+      case XmlPullParser.END_TAG:
+        depth--;
+        break;
+      case XmlPullParser.END_DOCUMENT:
+        throw new XmlPullParserException("Unexpected end of RSS feed");
+      default:
+        break;
+      }
+    }
+  }
+
+  /**
+   * Read-only view of the attributes of the current pull parser start tag.
+   * Namespace processing is disabled, so qualified names are used throughout.
+   */
+  private static final class PullAttributes implements Attributes {
+
+    private final XmlPullParser parser;
+
+    PullAttributes(XmlPullParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public int getLength() {
+      return parser.getAttributeCount();
+    }
+
+    @Override
+    public String getURI(int index) {
+      return "";
+    }
+
+    @Override
+    public String getLocalName(int index) {
+      return parser.getAttributeName(index);
+    }
+
+    @Override
+    public String getQName(int index) {
+      return parser.getAttributeName(index);
+    }
+
+    @Override
+    public String getType(int index) {
+      return "CDATA";
+    }
+
+    @Override
+    public String getValue(int index) {
+      return parser.getAttributeValue(index);
+    }
+
+    @Override
+    public int getIndex(String uri, String localName) {
+      return getIndex(localName);
+    }
+
+    @Override
+    public int getIndex(String qName) {
+      for (int i = 0, n = parser.getAttributeCount(); i < n; i++) {
+        if (qName.equals(parser.getAttributeName(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public String getType(String uri, String localName) {
+      return getIndex(localName) < 0 ? null : "CDATA";
+    }
+
+    @Override
+    public String getType(String qName) {
+      return getIndex(qName) < 0 ? null : "CDATA";
+    }
+
+    @Override
+    public String getValue(String uri, String localName) {
+      return parser.getAttributeValue(null, localName);
+    }
+
+    @Override
+    public String getValue(String qName) {
+      return parser.getAttributeValue(null, qName);
+    }
+
+  }
+
+}
@@ -16,9 +16,19 @@
 
 package org.mcsoxford.rss;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -26,11 +36,14 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 
 /**
  * HTTP client to retrieve and parse RSS 2.0 feeds. Callers must call
  * {@link RSSReader#close()} to release all resources.
+ * <p>
+ * Unless an {@link HttpClient} is injected, all readers share a process-wide
+ * client with a pool of keep-alive connections, so creating a reader is cheap
+ * and consecutive loads from the same host reuse open connections.
  * 
  * @author Mr Horn
  */
@@ -41,21 +54,80 @@ public class RSSReader implements java.io.Closeable {
    */
   private final HttpClient httpclient;
 
+  private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private static final int BUFFER_SIZE = 8192;
+
   /**
    * Thread-safe RSS parser SPI.
    */
   private final RSSParserSPI parser;
 
+  /**
+   * Thread-safe store of HTTP cache validators, {@code null} if conditional
+   * requests are disabled.
+   */
+  private final RSSValidators validators;
+
+  /**
+   * Feed returned by a load together with the expiry time of the response.
+   * An unchanged feed is the same object for every load which returns it and
+   * may be used by other threads, so the expiry time of a later response is
+   * returned alongside it instead of being stored in it.
+   */
+  static final class Loaded {
+
+    final RSSFeed feed;
+
+    /**
+     * Expiry time in milliseconds since the epoch or {@code -1} if the
+     * response did not specify any.
+     */
+    final long expires;
+
+    Loaded(RSSFeed feed, long expires) {
+      this.feed = feed;
+      this.expires = expires;
+    }
+
+  }
+
+  /**
+   * Total number of response body bytes received over the network.
+   */
+  private final AtomicLong transferred = new AtomicLong();
+
+  /**
+   * Total number of response body bytes after content decoding.
+   */
+  private final AtomicLong decoded = new AtomicLong();
+
   /**
    * Instantiate a thread-safe HTTP client to retrieve RSS feeds. The injected
-   * {@link HttpClient} implementation must be thread-safe.
+   * {@link HttpClient} implementation must be thread-safe. If a validator
+   * store is specified, feeds are requested conditionally and unchanged feeds
+   * are not parsed again.
    * 
    * @param httpclient thread-safe HTTP client implementation
    * @param parser thread-safe RSS parser SPI implementation
+   * @param validators HTTP cache validator store, may be {@code null}
    */
-  public RSSReader(HttpClient httpclient, RSSParserSPI parser) {
+  public RSSReader(HttpClient httpclient, RSSParserSPI parser,
+      RSSValidators validators) {
     this.httpclient = httpclient;
     this.parser = parser;
+    this.validators = validators;
+  }
+
+  /**
+   * Instantiate a thread-safe HTTP client to retrieve RSS feeds. The injected
+   * {@link HttpClient} implementation must be thread-safe.
+   * 
+   * @param httpclient thread-safe HTTP client implementation
+   * @param parser thread-safe RSS parser SPI implementation
+   */
+  public RSSReader(HttpClient httpclient, RSSParserSPI parser) {
+    this(httpclient, parser, /* validators */null);
   }
 
   /**
@@ -76,7 +148,29 @@ public class RSSReader implements java.io.Closeable {
    * {@link RSSConfig}.
    */
   public RSSReader(RSSConfig config) {
-    this(new DefaultHttpClient(), new RSSParser(config));
+    this(SharedHttpClient.get(), new RSSParser(config));
+  }
+
+  /**
+   * Instantiate a thread-safe HTTP client to retrieve and parse RSS feeds
+   * conditionally. Internal memory consumption and load performance can be
+   * tweaked with {@link RSSConfig}.
+   *
+   * @param config RSS configuration
+   * @param validators HTTP cache validator store
+   */
+  public RSSReader(RSSConfig config, RSSValidators validators) {
+    this(SharedHttpClient.get(), new RSSParser(config), validators);
+  }
+
+  /**
+   * Instantiate a thread-safe HTTP client to retrieve and parse RSS feeds
+   * conditionally. Default RSS configuration capacity values are used.
+   *
+   * @param validators HTTP cache validator store
+   */
+  public RSSReader(RSSValidators validators) {
+    this(SharedHttpClient.get(), new RSSParser(new RSSConfig()), validators);
   }
 
   /**
@@ -84,12 +178,16 @@ public class RSSReader implements java.io.Closeable {
    * Default RSS configuration capacity values are used.
    */
   public RSSReader() {
-    this(new DefaultHttpClient(), new RSSParser(new RSSConfig()));
+    this(SharedHttpClient.get(), new RSSParser(new RSSConfig()));
   }
 
   /**
    * Send HTTP GET request and parse the XML response to construct an in-memory
-   * representation of an RSS 2.0 feed.
+   * representation of an RSS 2.0 feed. If this reader has a validator store,
+   * the request carries {@code If-None-Match} and {@code If-Modified-Since}
+   * headers and the previously parsed feed is returned if the server responds
+   * with 304 (Not Modified) or with an identical body. Responses may be
+   * compressed with gzip or deflate; they are decompressed as they are parsed.
    * 
    * @param uri RSS 2.0 feed URI
    * @return in-memory representation of downloaded RSS feed
@@ -98,29 +196,138 @@ public class RSSReader implements java.io.Closeable {
    * @throws RSSFault if an unrecoverable IO error has occurred
    */
   public RSSFeed load(String uri) throws RSSReaderException {
+    return fetch(uri).feed;
+  }
+
+  /**
+   * Load the RSS feed like {@link #load(String)} and return it together with
+   * the expiry time of the response.
+   */
+  Loaded fetch(String uri) throws RSSReaderException {
     final HttpGet httpget = new HttpGet(uri);
 
+    // Only validate against feeds which can be returned without parsing
+    final RSSValidators.Entry previous = validators == null ? null : validators.get(uri);
+    final RSSFeed cached = previous == null ? null : previous.feed();
+    if (cached != null) {
+      if (previous.etag != null) {
+        httpget.addHeader("If-None-Match", previous.etag);
+      }
+      if (previous.lastModified != null) {
+        httpget.addHeader("If-Modified-Since", previous.lastModified);
+      }
+    }
+    httpget.addHeader("Accept-Encoding", ACCEPT_ENCODING);
+
     InputStream feedStream = null;
+    CountingInputStream transfer = null;
+    CountingInputStream content = null;
     try {
       // Send GET request to URI
       final HttpResponse response = httpclient.execute(httpget);
+      final long expires = expires(response);
 
       // Check if server response is valid
       final StatusLine status = response.getStatusLine();
-      if (status.getStatusCode() != HttpStatus.SC_OK) {
+      if (status.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+        return new Loaded(cached, expires);
+      } else if (status.getStatusCode() != HttpStatus.SC_OK) {
+        discard(httpget, response);
         throw new RSSReaderException(status.getStatusCode(),
             status.getReasonPhrase());
       }
 
       // Extract content stream from HTTP response
       HttpEntity entity = response.getEntity();
-      feedStream = entity.getContent();
+      feedStream = transfer = new CountingInputStream(entity.getContent());
+      feedStream = content = new CountingInputStream(decode(entity, transfer));
+
+      if (validators == null) {
+        final RSSFeed feed = parse(uri, content);
+        feed.setExpires(expires);
+        feed.setSizes(transfer.count(), content.count());
+        return new Loaded(feed, expires);
+      }
+
+      final String etag = headerValue(response, "ETag");
+      final String lastModified = headerValue(response, "Last-Modified");
+      final String digest;
+      final RSSFeed feed;
+      if (etag == null && lastModified == null) {
+        // No validators, so fall back to comparing digests of the body
+        final byte[] body = readFully(content);
+        digest = digest(body);
+        if (cached != null && digest.equals(previous.digest)) {
+          return new Loaded(cached, expires);
+        }
+        feed = parse(uri, new ByteArrayInputStream(body));
+      } else {
+        digest = null;
+        feed = parse(uri, content);
+      }
+      feed.setExpires(expires);
+      feed.setSizes(transfer.count(), content.count());
+
+      validators.put(uri, new RSSValidators.Entry(etag, lastModified, digest, feed));
+      return new Loaded(feed, expires);
+    } catch (ClientProtocolException e) {
+      throw new RSSFault(e);
+    } catch (IOException e) {
+      throw new RSSFault(e);
+    } finally {
+      Resources.closeQuietly(feedStream);
+      count(transfer, content);
+    }
+  }
+
+  /**
+   * Send HTTP GET request and parse the XML response, handing every RSS item
+   * to the specified sink as soon as it has been parsed. If the sink stops
+   * parsing, the HTTP request is aborted so that the rest of the response is
+   * never downloaded. Streamed loads are always unconditional.
+   * 
+   * @param uri RSS 2.0 feed URI
+   * @param sink receiver of RSS items
+   * @return in-memory representation of the downloaded RSS feed data, without
+   *         any RSS items
+   * @throws RSSReaderException if RSS feed could not be retrieved because of
+   *           HTTP error
+   * @throws RSSFault if an unrecoverable IO error has occurred
+   */
+  public RSSFeed load(String uri, RSSItemSink sink) throws RSSReaderException {
+    if (sink == null) {
+      throw new IllegalArgumentException("RSS item sink must not be null.");
+    }
 
-      RSSFeed feed = parser.parse(feedStream);
+    final HttpGet httpget = new HttpGet(uri);
+    httpget.addHeader("Accept-Encoding", ACCEPT_ENCODING);
+    final StoppableSink stoppable = new StoppableSink(sink);
+
+    InputStream feedStream = null;
+    CountingInputStream transfer = null;
+    CountingInputStream content = null;
+    try {
+      // Send GET request to URI
+      final HttpResponse response = httpclient.execute(httpget);
+
+      // Check if server response is valid
+      final StatusLine status = response.getStatusLine();
+      if (status.getStatusCode() != HttpStatus.SC_OK) {
+        discard(httpget, response);
+        throw new RSSReaderException(status.getStatusCode(),
+            status.getReasonPhrase());
+      }
 
-      if (feed.getLink() == null) {
+      // Extract content stream from HTTP response
+      HttpEntity entity = response.getEntity();
+      feedStream = transfer = new CountingInputStream(entity.getContent());
+      feedStream = content = new CountingInputStream(decode(entity, transfer));
+
+      final RSSFeed feed = parser.parse(content, stoppable);
+      if (feed.isLoaded(RSSConfig.LINK) && feed.getLink() == null) {
         feed.setLink(android.net.Uri.parse(uri));
       }
+      feed.setSizes(transfer.count(), content.count());
 
       return feed;
     } catch (ClientProtocolException e) {
@@ -128,15 +335,224 @@ public class RSSReader implements java.io.Closeable {
     } catch (IOException e) {
       throw new RSSFault(e);
     } finally {
+      if (stoppable.stopped) {
+        // closing the stream would consume the rest of the response
+        httpget.abort();
+      }
       Resources.closeQuietly(feedStream);
+      count(transfer, content);
+    }
+  }
+
+  /**
+   * Returns the total number of response body bytes this reader has received
+   * over the network, i.e. before decompression.
+   */
+  public long getTransferredBytes() {
+    return transferred.get();
+  }
+
+  /**
+   * Returns the total number of response body bytes this reader has read
+   * after decompression.
+   */
+  public long getDecodedBytes() {
+    return decoded.get();
+  }
+
+  /**
+   * Release the connection of a response whose body is not read, so that it
+   * returns to the pool instead of blocking later requests to the same host.
+   * If the body cannot be consumed, the request is aborted.
+   */
+  private static void discard(HttpGet httpget, HttpResponse response) {
+    final HttpEntity entity = response.getEntity();
+    if (entity == null) {
+      return;
+    }
+
+    try {
+      entity.consumeContent();
+    } catch (IOException e) {
+      httpget.abort();
+    }
+  }
+
+  private void count(CountingInputStream transfer, CountingInputStream content) {
+    if (transfer != null) {
+      transferred.addAndGet(transfer.count());
+    }
+    if (content != null) {
+      decoded.addAndGet(content.count());
+    }
+  }
+
+  /**
+   * Returns a stream which decodes the specified response body according to
+   * the {@code Content-Encoding} of the entity. Unknown encodings are passed
+   * through unchanged.
+   */
+  private static InputStream decode(HttpEntity entity, InputStream body)
+      throws IOException {
+    final Header header = entity.getContentEncoding();
+    if (header == null) {
+      return body;
+    }
+
+    final String encoding = header.getValue().trim();
+    if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+      return new GZIPInputStream(body, BUFFER_SIZE);
+    } else if (encoding.equalsIgnoreCase("deflate")) {
+      return inflate(body);
+    }
+    return body;
+  }
+
+  /**
+   * Returns a stream which inflates a deflate-encoded response body. HTTP
+   * specifies the zlib format, but some servers send raw deflate data, so
+   * the first two bytes decide which one it is.
+   */
+  private static InputStream inflate(InputStream body) throws IOException {
+    final PushbackInputStream in = new PushbackInputStream(body, 2);
+    final int b0 = in.read();
+    final int b1 = b0 == -1 ? -1 : in.read();
+    if (b1 != -1) {
+      in.unread(b1);
+    }
+    if (b0 != -1) {
+      in.unread(b0);
+    }
+
+    // zlib header: compression method 8 and a checksum divisible by 31
+    final boolean zlib = b1 != -1 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+    final Inflater inflater = new Inflater(/* nowrap */!zlib);
+    return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          // a custom inflater is not released by InflaterInputStream
+          inflater.end();
+        }
+      }
+    };
+  }
+
+  /**
+   * Item sink which remembers whether the wrapped sink has stopped parsing.
+   */
+  private static final class StoppableSink implements RSSItemSink {
+
+    private final RSSItemSink sink;
+    boolean stopped;
+
+    StoppableSink(RSSItemSink sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public boolean item(RSSItem item) {
+      stopped = !sink.item(item);
+      return !stopped;
+    }
+
+  }
+
+  /**
+   * Parse the feed and default its link to the URI it has been loaded from.
+   */
+  private RSSFeed parse(String uri, InputStream feedStream) {
+    final RSSFeed feed = parser.parse(feedStream);
+
+    if (feed.isLoaded(RSSConfig.LINK) && feed.getLink() == null) {
+      feed.setLink(android.net.Uri.parse(uri));
+    }
+
+    return feed;
+  }
+
+  /**
+   * Returns the expiry time of the response in milliseconds since the epoch
+   * as specified by {@code Cache-Control} or {@code Expires}, or {@code -1}
+   * if the response specifies neither.
+   */
+  private static long expires(HttpResponse response) {
+    final long now = System.currentTimeMillis();
+
+    final String cacheControl = headerValue(response, "Cache-Control");
+    if (cacheControl != null) {
+      for (String directive : cacheControl.split(",")) {
+        directive = directive.trim();
+        if (directive.equals("no-cache") || directive.equals("no-store")) {
+          return now;
+        } else if (directive.startsWith("max-age=")) {
+          try {
+            return now + Long.parseLong(directive.substring(8).trim()) * 1000;
+          } catch (NumberFormatException ignored) {
+          }
+        }
+      }
+    }
+
+    final String expires = headerValue(response, "Expires");
+    if (expires != null) {
+      final long millis = Dates.parseMillis(expires);
+      // invalid dates such as "0" mean already expired
+      return millis == Dates.INVALID ? now : millis;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the value of the first header with the specified name or
+   * {@code null} if the response has no such header.
+   */
+  private static String headerValue(HttpResponse response, String name) {
+    final Header header = response.getFirstHeader(name);
+    return header == null ? null : header.getValue();
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    final byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
     }
+    return out.toByteArray();
   }
 
   /**
-   * Release all HTTP client resources.
+   * Returns the hex-encoded SHA-1 digest of the specified bytes.
+   */
+  private static String digest(byte[] body) {
+    final MessageDigest sha1;
+    try {
+      sha1 = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RSSFault(e);
+    }
+
+    final byte[] hash = sha1.digest(body);
+    final StringBuilder hex = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+      hex.append(Character.forDigit(b & 0xf, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Release all HTTP client resources. The shared HTTP client is never shut
+   * down, so closing a reader which uses it has no effect.
    */
   public void close() {
-    httpclient.getConnectionManager().shutdown();
+    if (httpclient != SharedHttpClient.get()) {
+      httpclient.getConnectionManager().shutdown();
+    }
   }
 
 }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Thread-safe, adaptive schedule of RSS feed polls. The scheduler does not
+ * poll by itself; the application asks it which feeds are {@link #due(long)}
+ * and reports the outcome of every poll with
+ * {@link #succeeded(String, List)} or {@link #failed(String)}.
+ * <p>
+ * For every feed, the scheduler learns the interval in which new items are
+ * published from their publication dates and polls about twice per interval.
+ * Feeds which have not changed for a long time are polled less often, and
+ * failing feeds are backed off exponentially. All delays stay between a
+ * minimum and a maximum and are randomized slightly, so that feeds which
+ * have been added together drift apart. Feeds which become due within a
+ * short window of each other are returned as one batch.
+ *
+ * @author Mr Horn
+ */
+public final class RSSScheduler {
+
+  /** Maximum relative deviation of a randomized delay */
+  private static final double JITTER = 0.1;
+
+  /** Weight of the latest observed publish interval in the estimate */
+  private static final double SMOOTHING = 0.5;
+
+  /** Maximum number of dated items used to observe a publish interval */
+  private static final int SAMPLE_SIZE = 10;
+
+  /** Maximum number of doublings of the backoff delay */
+  private static final int MAX_BACKOFF_SHIFT = 16;
+
+  /**
+   * Poll state of a single feed.
+   */
+  private static final class Feed {
+
+    /** Estimated publish interval, {@code -1} until one has been observed */
+    long interval = -1;
+
+    /** Newest publication date seen so far */
+    long newest = Long.MIN_VALUE;
+
+    /** Time when a new item has last been seen */
+    long lastChange;
+
+    /** Number of consecutive failed polls */
+    int errors;
+
+    /** Time of the next poll, {@link Long#MAX_VALUE} while polling */
+    long next;
+
+  }
+
+  private final long baseline;
+  private final long min;
+  private final long max;
+  private final long batchWindow;
+
+  private final Map<String, Feed> feeds = new HashMap<String, Feed>();
+  private final Random random = new Random();
+
+  /**
+   * Instantiate a scheduler which polls feeds with unknown publish intervals
+   * at the specified baseline delay. Delays range from a sixth of the
+   * baseline to eight times the baseline; feeds due within a minute are
+   * batched.
+   *
+   * @param baselineMillis delay between polls of feeds with unknown publish
+   *          interval
+   */
+  public RSSScheduler(long baselineMillis) {
+    this(baselineMillis, baselineMillis / 6, baselineMillis * 8, 60 * 1000L);
+  }
+
+  /**
+   * Instantiate a scheduler.
+   *
+   * @param baselineMillis delay between polls of feeds with unknown publish
+   *          interval
+   * @param minMillis minimum delay between two polls of a feed
+   * @param maxMillis maximum delay between two polls of a feed, including
+   *          backoff
+   * @param batchWindowMillis feeds which are due within this window of each
+   *          other are polled together
+   */
+  public RSSScheduler(long baselineMillis, long minMillis, long maxMillis,
+      long batchWindowMillis) {
+    if (minMillis <= 0 || baselineMillis < minMillis || maxMillis < baselineMillis) {
+      throw new IllegalArgumentException("Delays must satisfy 0 < min <= baseline <= max.");
+    } else if (batchWindowMillis < 0) {
+      throw new IllegalArgumentException("Batch window must not be negative.");
+    }
+
+    this.baseline = baselineMillis;
+    this.min = minMillis;
+    this.max = maxMillis;
+    this.batchWindow = batchWindowMillis;
+  }
+
+  /**
+   * Schedule the RSS feed with the specified URI for an immediate poll.
+   * Adding a scheduled feed has no effect.
+   */
+  public synchronized void add(String uri) {
+    if (uri == null) {
+      throw new IllegalArgumentException("RSS feed URI must not be null.");
+    }
+
+    if (!feeds.containsKey(uri)) {
+      final Feed feed = new Feed();
+      feed.lastChange = System.currentTimeMillis();
+      feed.next = feed.lastChange;
+      feeds.put(uri, feed);
+    }
+  }
+
+  /**
+   * Stop scheduling the RSS feed with the specified URI and forget what has
+   * been learned about it.
+   */
+  public synchronized void remove(String uri) {
+    feeds.remove(uri);
+  }
+
+  /**
+   * Returns the URIs of all feeds whose next poll is due at the specified
+   * time or within the batch window after it. The returned feeds are
+   * considered to be polling until their outcome is reported.
+   *
+   * @param now current time in milliseconds since the epoch
+   * @return possibly empty list of URIs to poll now
+   */
+  public synchronized List<String> due(long now) {
+    List<String> due = null;
+    for (Map.Entry<String, Feed> entry : feeds.entrySet()) {
+      final Feed feed = entry.getValue();
+      if (feed.next != Long.MAX_VALUE && feed.next <= now + batchWindow) {
+        if (due == null) {
+          due = new ArrayList<String>();
+        }
+        due.add(entry.getKey());
+        feed.next = Long.MAX_VALUE;
+      }
+    }
+
+    if (due == null) {
+      return Collections.emptyList();
+    }
+    return due;
+  }
+
+  /**
+   * Returns the time of the earliest scheduled poll in milliseconds since the
+   * epoch, {@link Long#MAX_VALUE} if no poll is scheduled.
+   */
+  public synchronized long nextPollTime() {
+    long next = Long.MAX_VALUE;
+    for (Feed feed : feeds.values()) {
+      next = Math.min(next, feed.next);
+    }
+    return next;
+  }
+
+  /**
+   * Report that the RSS feed with the specified URI has been polled
+   * successfully and learn from its items when to poll it next.
+   *
+   * @param uri RSS feed URI
+   * @param items RSS items of the feed
+   */
+  public synchronized void succeeded(String uri, List<RSSItem> items) {
+    final Feed feed = feeds.get(uri);
+    if (feed == null) {
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+    final long[] dates = newestDates(items);
+    if (dates.length > 0 && dates[0] > feed.newest) {
+      feed.newest = dates[0];
+      feed.lastChange = now;
+    }
+    if (dates.length > 1) {
+      final long observed = (dates[0] - dates[dates.length - 1]) / (dates.length - 1);
+      feed.interval = feed.interval < 0 ? observed
+          : (long) (SMOOTHING * observed + (1 - SMOOTHING) * feed.interval);
+    }
+    feed.errors = 0;
+
+    // poll twice per publish interval, less often the longer nothing changes
+    long delay = feed.interval < 0 ? baseline : feed.interval / 2;
+    delay = Math.max(delay, (now - feed.lastChange) / 4);
+    feed.next = now + jitter(clamp(delay));
+  }
+
+  /**
+   * Report that the RSS feed with the specified URI could not be polled. The
+   * delay until the next poll doubles with every consecutive failure.
+   */
+  public synchronized void failed(String uri) {
+    final Feed feed = feeds.get(uri);
+    if (feed == null) {
+      return;
+    }
+
+    feed.errors++;
+    final int shift = Math.min(feed.errors, MAX_BACKOFF_SHIFT);
+    final long delay = min << shift;
+    feed.next = System.currentTimeMillis() + jitter(clamp(delay < 0 ? max : delay));
+  }
+
+  /**
+   * Report that a due RSS feed has not been polled, e.g. because a poll of
+   * it was already running, and schedule it without learning anything.
+   */
+  public synchronized void skipped(String uri) {
+    final Feed feed = feeds.get(uri);
+    if (feed != null && feed.next == Long.MAX_VALUE) {
+      feed.next = System.currentTimeMillis() + jitter(min);
+    }
+  }
+
+  private long clamp(long delay) {
+    return Math.max(min, Math.min(max, delay));
+  }
+
+  private long jitter(long delay) {
+    return (long) (delay * (1 + JITTER * (2 * random.nextDouble() - 1)));
+  }
+
+  /**
+   * Returns the newest publication dates of the specified items, newest
+   * first.
+   */
+  private static long[] newestDates(List<RSSItem> items) {
+    final List<Long> dates = new ArrayList<Long>(items.size());
+    for (int i = 0, n = items.size(); i < n; i++) {
+      final RSSItem item = items.get(i);
+      if (item.isLoaded(RSSConfig.PUBDATE)) {
+        final Date date = item.getPubDate();
+        if (date != null) {
+          dates.add(date.getTime());
+        }
+      }
+    }
+    Collections.sort(dates, Collections.reverseOrder());
+
+    final long[] newest = new long[Math.min(SAMPLE_SIZE, dates.size())];
+    for (int i = 0; i < newest.length; i++) {
+      newest[i] = dates.get(i);
+    }
+    return newest;
+  }
+
+}
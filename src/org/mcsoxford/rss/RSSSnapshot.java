@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.net.Uri;
+
+/**
+ * Compact binary snapshot of a parsed RSS feed. A snapshot can be decoded
+ * much faster than the RSS document it was parsed from, so an application can
+ * show the last known feed immediately while a fresh copy is loaded.
+ * <p>
+ * A snapshot starts with a magic number, a format version, the feed URI and
+ * the {@link RSSConfig} field mask. All strings, including URIs, are stored
+ * once in a string table and referenced by index; dates are stored as
+ * milliseconds since the epoch. Snapshots are read through a memory-mapped
+ * file.
+ *
+ * @author Mr Horn
+ */
+public final class RSSSnapshot {
+
+  private static final int MAGIC = 0x52535373; // "RSSs"
+  private static final int VERSION = 3;
+
+  /** String table index of {@code null} */
+  private static final int NULL = -1;
+
+  /** Stored instead of a {@code null} date */
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  /* Hide constructor */
+  private RSSSnapshot() {}
+
+  /**
+   * Write a snapshot of the specified feed to a file. The snapshot is written
+   * to a temporary file first and then renamed, so a reader never sees a
+   * partially written snapshot.
+   *
+   * @param uri URI from which the feed has been loaded
+   * @param feed in-memory representation of the feed
+   * @param file destination of the snapshot
+   * @throws IOException if the snapshot could not be written
+   */
+  public static void write(String uri, RSSFeed feed, File file) throws IOException {
+    if (uri == null || feed == null || file == null) {
+      throw new IllegalArgumentException("Snapshot arguments must not be null.");
+    }
+
+    final Strings strings = new Strings();
+    // the string table precedes the feed, so the feed is encoded first
+    final ByteArrayOutputStream body = new ByteArrayOutputStream(8 * 1024);
+    final DataOutputStream data = new DataOutputStream(body);
+    writeFeed(data, strings, feed);
+    data.flush();
+
+    final File tmp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(feed.fields());
+      writeChars(out, uri);
+      out.writeInt(strings.list.size());
+      for (String string : strings.list) {
+        writeChars(out, string);
+      }
+      body.writeTo(out);
+      out.close();
+      out = null;
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Could not rename " + tmp + " to " + file);
+      }
+    } finally {
+      Resources.closeQuietly(out);
+      tmp.delete();
+    }
+  }
+
+  /**
+   * Read the snapshot of the specified feed URI from a file.
+   *
+   * @param uri URI from which the feed has been loaded
+   * @param file snapshot written by {@link #write(String, RSSFeed, File)}
+   * @return in-memory representation of the feed or {@code null} if the file
+   *         is a snapshot of a different URI
+   * @throws IOException if the file could not be read or is not a valid
+   *         snapshot of the current format version
+   */
+  public static RSSFeed read(String uri, File file) throws IOException {
+    if (uri == null || file == null) {
+      throw new IllegalArgumentException("Snapshot arguments must not be null.");
+    }
+
+    final ByteBuffer buffer;
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      final FileChannel channel = in.getChannel();
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      Resources.closeQuietly(in);
+    }
+
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not an RSS snapshot: " + file);
+      }
+      final int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported RSS snapshot version: " + version);
+      }
+      final int fields = buffer.getInt();
+      if (!uri.equals(readChars(buffer))) {
+        return null;
+      }
+
+      final String[] strings = new String[buffer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = readChars(buffer);
+      }
+      return readFeed(buffer, strings, fields);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated RSS snapshot: " + file);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt RSS snapshot: " + file);
+    } catch (NegativeArraySizeException e) {
+      throw new IOException("Corrupt RSS snapshot: " + file);
+    }
+  }
+
+  private static void writeFeed(DataOutputStream out, Strings strings, RSSFeed feed)
+      throws IOException {
+    writeBase(out, strings, feed);
+    out.writeInt(feed.getTtl());
+    out.writeLong(feed.expires());
+    out.writeLong(feed.getTransferSize());
+    out.writeLong(feed.getContentSize());
+
+    final List<RSSItem> items = feed.getItems();
+    out.writeInt(items.size());
+    for (int i = 0, n = items.size(); i < n; i++) {
+      final RSSItem item = items.get(i);
+      writeBase(out, strings, item);
+      out.writeInt(strings.index(item.isLoaded(RSSConfig.CONTENT) ? item.getContent() : null));
+      out.writeInt(strings.index(item.isLoaded(RSSConfig.GUID) ? item.getGuid() : null));
+      if (item.isLoaded(RSSConfig.SOURCE)) {
+        out.writeInt(strings.index(item.getSourceName()));
+        out.writeInt(strings.index(item.getSourceUrl()));
+      } else {
+        out.writeInt(NULL);
+        out.writeInt(NULL);
+      }
+      if (item.isLoaded(RSSConfig.THUMBNAILS)) {
+        final List<MediaThumbnail> thumbnails = item.getThumbnails();
+        out.writeInt(thumbnails.size());
+        for (MediaThumbnail thumbnail : thumbnails) {
+          out.writeInt(strings.index(thumbnail.getUrl()));
+          out.writeInt(thumbnail.getHeight());
+          out.writeInt(thumbnail.getWidth());
+        }
+      } else {
+        out.writeInt(0);
+      }
+    }
+  }
+
+  private static RSSFeed readFeed(ByteBuffer in, String[] strings, int fields) {
+    final RSSFeed feed = new RSSFeed(0, fields);
+    readBase(in, strings, feed);
+    feed.setTtl(in.getInt());
+    feed.setExpires(in.getLong());
+    feed.setSizes(in.getLong(), in.getLong());
+
+    final int size = in.getInt();
+    feed.ensureCapacity(size);
+    for (int i = 0; i < size; i++) {
+      final RSSItem item = new RSSItem((byte) 0, (byte) 0, fields);
+      readBase(in, strings, item);
+      item.setContent(string(strings, in.getInt()));
+      item.setGuid(string(strings, in.getInt()));
+      item.setSourceName(string(strings, in.getInt()));
+      item.setSourceUrl(uri(strings, in.getInt()));
+      for (int j = 0, n = in.getInt(); j < n; j++) {
+        final Uri url = uri(strings, in.getInt());
+        final int height = in.getInt();
+        final int width = in.getInt();
+        item.addThumbnail(new MediaThumbnail(url, height, width));
+      }
+      feed.addItem(item);
+    }
+    return feed;
+  }
+
+  private static void writeBase(DataOutputStream out, Strings strings, RSSBase base)
+      throws IOException {
+    out.writeInt(strings.index(base.isLoaded(RSSConfig.TITLE) ? base.getTitle() : null));
+    out.writeInt(strings.index(base.isLoaded(RSSConfig.LINK) ? base.getLink() : null));
+    out.writeInt(strings.index(base.isLoaded(RSSConfig.DESCRIPTION) ? base.getDescription()
+        : null));
+
+    final Date pubDate = base.isLoaded(RSSConfig.PUBDATE) ? base.getPubDate() : null;
+    out.writeLong(pubDate == null ? NO_DATE : pubDate.getTime());
+
+    if (base.isLoaded(RSSConfig.CATEGORIES)) {
+      final List<String> categories = base.getCategories();
+      out.writeInt(categories.size());
+      for (String category : categories) {
+        out.writeInt(strings.index(category));
+      }
+    } else {
+      out.writeInt(0);
+    }
+  }
+
+  private static void readBase(ByteBuffer in, String[] strings, RSSBase base) {
+    base.setTitle(string(strings, in.getInt()));
+    base.setLink(uri(strings, in.getInt()));
+    base.setDescription(string(strings, in.getInt()));
+
+    final long pubDate = in.getLong();
+    base.setPubDate(pubDate == NO_DATE ? null : new Date(pubDate));
+
+    for (int i = 0, n = in.getInt(); i < n; i++) {
+      base.addCategory(string(strings, in.getInt()));
+    }
+  }
+
+  private static String string(String[] strings, int index) {
+    return index == NULL ? null : strings[index];
+  }
+
+  private static Uri uri(String[] strings, int index) {
+    return index == NULL ? null : Uri.parse(strings[index]);
+  }
+
+  private static void writeChars(DataOutputStream out, String string) throws IOException {
+    out.writeInt(string.length());
+    out.writeChars(string);
+  }
+
+  private static String readChars(ByteBuffer in) {
+    final char[] chars = new char[in.getInt()];
+    in.asCharBuffer().get(chars);
+    in.position(in.position() + chars.length * 2);
+    return new String(chars);
+  }
+
+  /**
+   * String table which assigns consecutive indices to distinct strings.
+   */
+  private static final class Strings {
+
+    final List<String> list = new ArrayList<String>();
+    final Map<String, Integer> indices = new HashMap<String, Integer>();
+
+    int index(Object value) {
+      if (value == null) {
+        return NULL;
+      }
+
+      final String string = value.toString();
+      Integer index = indices.get(string);
+      if (index == null) {
+        index = list.size();
+        list.add(string);
+        indices.put(string, index);
+      }
+      return index;
+    }
+
+  }
+
+}
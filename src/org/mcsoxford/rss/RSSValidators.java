@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Thread-safe store of HTTP cache validators for RSS feeds. For every feed URI
+ * the store remembers the {@code ETag} and {@code Last-Modified} response
+ * headers as well as a digest of the response body. {@link RSSReader} uses
+ * these values to send conditional GET requests and to skip parsing feeds
+ * which have not changed since they were last loaded.
+ * <p>
+ * If the store has been constructed with a file, the validators survive
+ * process restarts. Changes are written from a copy after the store has been
+ * unlocked, so lookups never wait for the file. Parsed feeds are only ever
+ * kept in memory, so after a restart a feed must be reattached with
+ * {@link #restore(String, RSSFeed)} before its validators are sent again.
+ * They are softly referenced, so the store never keeps a feed alive which
+ * nothing else uses once memory runs low.
+ *
+ * @author Mr Horn
+ */
+public final class RSSValidators {
+
+  private static final String ETAG = ".etag";
+  private static final String LAST_MODIFIED = ".lastModified";
+  private static final String DIGEST = ".digest";
+
+  /**
+   * Validators of a single RSS feed URI.
+   */
+  static final class Entry {
+
+    /** Value of the {@code ETag} response header, may be {@code null} */
+    final String etag;
+
+    /** Value of the {@code Last-Modified} response header, may be {@code null} */
+    final String lastModified;
+
+    /** Hex-encoded digest of the response body, may be {@code null} */
+    final String digest;
+
+    /** Last parsed feed, {@code null} unless loaded by this process */
+    private final SoftReference<RSSFeed> feed;
+
+    Entry(String etag, String lastModified, String digest, RSSFeed feed) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.digest = digest;
+      this.feed = feed == null ? null : new SoftReference<RSSFeed>(feed);
+    }
+
+    /**
+     * Returns the last parsed feed or {@code null} if there is none or it has
+     * been reclaimed. The validators must only be sent while the caller holds
+     * on to the returned feed.
+     */
+    RSSFeed feed() {
+      return feed == null ? null : feed.get();
+    }
+
+  }
+
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /**
+   * File to persist the validators, {@code null} to keep them only in memory.
+   */
+  private final File file;
+
+  /**
+   * Number of changes made to the entries. Guarded by {@code this}.
+   */
+  private long changes;
+
+  /**
+   * Number of changes which have been written to the file. Guarded by
+   * {@link #fileLock}.
+   */
+  private long written;
+  private final Object fileLock = new Object();
+
+  /**
+   * Instantiate a store which keeps validators only in memory.
+   */
+  public RSSValidators() {
+    this.file = null;
+  }
+
+  /**
+   * Instantiate a store which persists validators in the specified file.
+   * Previously saved validators are read immediately. A missing or corrupt
+   * file is treated as an empty store.
+   *
+   * @param file file to read validators from and write them to
+   */
+  public RSSValidators(File file) {
+    if (file == null) {
+      throw new IllegalArgumentException("Validator file must not be null.");
+    }
+
+    this.file = file;
+    read();
+  }
+
+  /**
+   * Attach a feed which has been obtained by other means, e.g. from a local
+   * copy, to the persisted validators of the specified URI. Subsequent loads
+   * of the URI send conditional requests and return this feed if the server
+   * reports that it has not been modified.
+   *
+   * @param uri RSS feed URI
+   * @param feed in-memory representation of the feed
+   */
+  public synchronized void restore(String uri, RSSFeed feed) {
+    final Entry entry = entries.get(uri);
+    if (entry != null) {
+      entries.put(uri, new Entry(entry.etag, entry.lastModified, entry.digest, feed));
+    }
+  }
+
+  /**
+   * Forget the validators of the specified URI so that the next load
+   * downloads and parses the feed unconditionally.
+   */
+  public void clear(String uri) {
+    final Properties properties;
+    final long change;
+    synchronized (this) {
+      if (entries.remove(uri) == null) {
+        return;
+      }
+      properties = properties();
+      change = ++changes;
+    }
+    write(properties, change);
+  }
+
+  /**
+   * Returns the validators of the specified URI or {@code null} if none are
+   * known.
+   */
+  synchronized Entry get(String uri) {
+    return entries.get(uri);
+  }
+
+  /**
+   * Store the validators and the parsed feed of the specified URI.
+   */
+  void put(String uri, Entry entry) {
+    final Properties properties;
+    final long change;
+    synchronized (this) {
+      entries.put(uri, entry);
+      properties = properties();
+      change = ++changes;
+    }
+    write(properties, change);
+  }
+
+  private void read() {
+    final Properties properties = new Properties();
+    FileInputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      properties.load(in);
+    } catch (IOException e) {
+      // start with an empty store
+      return;
+    } finally {
+      Resources.closeQuietly(in);
+    }
+
+    for (String key : properties.stringPropertyNames()) {
+      if (key.endsWith(DIGEST)) {
+        final String uri = key.substring(0, key.length() - DIGEST.length());
+        entries.put(uri, new Entry(properties.getProperty(uri + ETAG),
+            properties.getProperty(uri + LAST_MODIFIED), emptyToNull(properties.getProperty(key)),
+            /* feed */null));
+      }
+    }
+  }
+
+  /**
+   * Returns a copy of all validators to write, or {@code null} if the store
+   * is not persisted. Must be called while holding the lock of the store.
+   */
+  private Properties properties() {
+    if (file == null) {
+      return null;
+    }
+
+    final Properties properties = new Properties();
+    for (Map.Entry<String, Entry> e : entries.entrySet()) {
+      final String uri = e.getKey();
+      final Entry entry = e.getValue();
+      if (entry.etag != null) {
+        properties.setProperty(uri + ETAG, entry.etag);
+      }
+      if (entry.lastModified != null) {
+        properties.setProperty(uri + LAST_MODIFIED, entry.lastModified);
+      }
+      // the digest key marks the presence of an entry
+      properties.setProperty(uri + DIGEST, entry.digest == null ? "" : entry.digest);
+    }
+    return properties;
+  }
+
+  /**
+   * Write a copy of the validators to a temporary file first and then rename
+   * it so that an interrupted write never corrupts previously saved
+   * validators. A copy is not written if a later one has been written
+   * already.
+   *
+   * @param properties copy of the validators, {@code null} to write nothing
+   * @param change number of changes the copy contains
+   */
+  private void write(Properties properties, long change) {
+    if (properties == null) {
+      return;
+    }
+
+    synchronized (fileLock) {
+      if (change <= written) {
+        return;
+      }
+      written = change;
+
+      final File tmp = new File(file.getPath() + ".tmp");
+      FileOutputStream out = null;
+      try {
+        out = new FileOutputStream(tmp);
+        properties.store(out, null);
+        out.close();
+        out = null;
+        if (!tmp.renameTo(file)) {
+          tmp.delete();
+        }
+      } catch (IOException e) {
+        // validators are an optimization, losing them is not an error
+        tmp.delete();
+      } finally {
+        Resources.closeQuietly(out);
+      }
+    }
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.length() == 0 ? null : value;
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Internal process-wide HTTP client which all {@link RSSReader} instances use
+ * unless another client is injected. Connections are pooled and kept alive,
+ * so consecutive loads from the same host skip DNS lookup as well as TCP and
+ * TLS setup. A daemon thread closes connections which have been idle for too
+ * long, so that the pool never hands out connections the server has dropped.
+ *
+ * @author Mr Horn
+ */
+final class SharedHttpClient {
+
+  /** Maximum number of pooled connections to a single host */
+  static final int MAX_CONNECTIONS_PER_ROUTE = 4;
+
+  /** Maximum number of pooled connections */
+  static final int MAX_CONNECTIONS = 16;
+
+  static final int CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+  static final int READ_TIMEOUT_MILLIS = 30 * 1000;
+
+  /** Keep-alive duration if the server does not specify one */
+  static final long KEEP_ALIVE_MILLIS = 30 * 1000;
+
+  /** Interval in which idle and expired connections are closed */
+  static final long EVICTION_INTERVAL_MILLIS = 15 * 1000;
+
+  private static final HttpClient CLIENT = create();
+
+  /* Hide constructor */
+  private SharedHttpClient() {}
+
+  /**
+   * Returns the shared HTTP client.
+   */
+  static HttpClient get() {
+    return CLIENT;
+  }
+
+  private static HttpClient create() {
+    final HttpParams params = new BasicHttpParams();
+    ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS);
+    ConnManagerParams.setMaxConnectionsPerRoute(params,
+        new ConnPerRouteBean(MAX_CONNECTIONS_PER_ROUTE));
+    ConnManagerParams.setTimeout(params, CONNECT_TIMEOUT_MILLIS);
+    HttpConnectionParams.setConnectionTimeout(params, CONNECT_TIMEOUT_MILLIS);
+    HttpConnectionParams.setSoTimeout(params, READ_TIMEOUT_MILLIS);
+
+    final SchemeRegistry schemes = new SchemeRegistry();
+    schemes.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+    schemes.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+    final ClientConnectionManager manager = new ThreadSafeClientConnManager(params, schemes);
+    final DefaultHttpClient client = new DefaultHttpClient(manager, params);
+    client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+      @Override
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        final long duration = super.getKeepAliveDuration(response, context);
+        return duration < 0 ? KEEP_ALIVE_MILLIS : duration;
+      }
+    });
+
+    final Thread evictor = new Thread(new Evictor(manager), "RSSReader connection evictor");
+    evictor.setDaemon(true);
+    evictor.start();
+    return client;
+  }
+
+  /**
+   * Closes expired connections as well as connections which have been idle
+   * for longer than {@link #KEEP_ALIVE_MILLIS}.
+   */
+  private static final class Evictor implements Runnable {
+
+    private final ClientConnectionManager manager;
+
+    Evictor(ClientConnectionManager manager) {
+      this.manager = manager;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Thread.sleep(EVICTION_INTERVAL_MILLIS);
+          manager.closeExpiredConnections();
+          manager.closeIdleConnections(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+      } catch (InterruptedException e) {
+        // the process is shutting down
+      }
+    }
+
+  }
+
+}
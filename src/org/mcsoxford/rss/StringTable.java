@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe, bounded table which deduplicates strings that repeat across RSS
+ * items and RSS feeds, such as category and source names. The table has a
+ * fixed number of slots which refer to their strings weakly, so it never grows
+ * and never keeps a string alive on its own. A string whose slot is taken by
+ * another string simply replaces it.
+ *
+ * @author Mr Horn
+ */
+public final class StringTable {
+
+  /**
+   * Process-wide table used by the RSS parsers.
+   */
+  private static final StringTable SHARED = new StringTable(1024);
+
+  private final WeakReference<String>[] slots;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Instantiate a string table with at least the specified number of slots.
+   *
+   * @param capacity minimum number of slots, rounded up to a power of two
+   */
+  @SuppressWarnings("unchecked")
+  public StringTable(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+
+    int size = 1;
+    while (size < capacity) {
+      size <<= 1;
+    }
+    slots = new WeakReference[size];
+  }
+
+  /**
+   * Returns the process-wide string table which the RSS parsers use for
+   * low-cardinality fields.
+   */
+  public static StringTable shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns a string with the characters of the specified buffer. If an equal
+   * string is in the table, it is returned without allocating a new one.
+   */
+  public String intern(CharSequence chars) {
+    final int length = chars.length();
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+
+    final int slot = spread(hash) & (slots.length - 1);
+    final WeakReference<String> ref = slots[slot];
+    final String candidate = ref == null ? null : ref.get();
+    if (candidate != null && candidate.hashCode() == hash && contentEquals(candidate, chars)) {
+      hits.incrementAndGet();
+      return candidate;
+    }
+
+    misses.incrementAndGet();
+    final String string = chars.toString();
+    slots[slot] = new WeakReference<String>(string);
+    return string;
+  }
+
+  /**
+   * Returns the number of lookups which found an equal string in the table.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of lookups which had to store a new string.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the ratio of hits to lookups, or zero if there were no lookups.
+   */
+  public double getHitRate() {
+    final long h = hits.get();
+    final long total = h + misses.get();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  /**
+   * Mix the high bits of the hash code into the slot index.
+   */
+  private static int spread(int hash) {
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    return hash ^ (hash >>> 7) ^ (hash >>> 4);
+  }
+
+  private static boolean contentEquals(String string, CharSequence chars) {
+    final int length = chars.length();
+    if (string.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (string.charAt(i) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.util.Log;
+
+/**
+ * Helpers for the benchmarks, which report their results to the log instead
+ * of asserting them, since timings depend on the device.
+ *
+ * @author Mr Horn
+ */
+final class Benchmarks {
+
+  static final String TAG = "Benchmark";
+
+  /**
+   * Piece of work to measure.
+   */
+  interface Task {
+
+    void run() throws Exception;
+
+  }
+
+  /* Hide constructor */
+  private Benchmarks() {}
+
+  /**
+   * Run the task to warm up, then return the average duration of the timed
+   * runs in nanoseconds.
+   */
+  static long time(int warmups, int runs, Task task) throws Exception {
+    for (int i = 0; i < warmups; i++) {
+      task.run();
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < runs; i++) {
+      task.run();
+    }
+    return (System.nanoTime() - start) / runs;
+  }
+
+  /**
+   * Log the average duration of a task.
+   */
+  static void report(String name, long nanos) {
+    Log.i(TAG, name + ": " + nanos / 1000 + " us");
+  }
+
+  /**
+   * Returns the parser fixture with its items repeated the specified number
+   * of times, so that the feed is as long as a real one.
+   */
+  static byte[] feed(int copies) throws IOException {
+    final String fixture = new String(read(ParserParityTest.FIXTURE), "UTF-8");
+    final int start = fixture.indexOf("<item>");
+    final int end = fixture.lastIndexOf("</item>") + "</item>".length();
+
+    final StringBuilder feed = new StringBuilder(fixture.length() * copies);
+    feed.append(fixture, 0, start);
+    for (int i = 0; i < copies; i++) {
+      feed.append(fixture, start, end);
+    }
+    feed.append(fixture, end, fixture.length());
+    return feed.toString().getBytes("UTF-8");
+  }
+
+  private static byte[] read(String resource) throws IOException {
+    final InputStream in = Benchmarks.class.getResourceAsStream(resource);
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+}
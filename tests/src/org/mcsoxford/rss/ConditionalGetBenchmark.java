@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares loading an unchanged feed with a conditional GET, which the server
+ * answers with 304 Not Modified, to downloading and parsing it in full.
+ *
+ * @author Mr Horn
+ */
+public class ConditionalGetBenchmark extends TestCase {
+
+  private static final int COPIES = 40;
+  private static final int WARMUPS = 5;
+  private static final int RUNS = 20;
+
+  private FeedServer server;
+
+  @Override
+  protected void setUp() throws Exception {
+    server = new FeedServer(200, "\"v1\"", Benchmarks.feed(COPIES));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.close();
+  }
+
+  public void testLoad() throws Exception {
+    final RSSReader full = new RSSReader();
+    final RSSReader conditional = new RSSReader(new RSSValidators());
+    final RSSFeed feed = conditional.load(server.uri());
+
+    Benchmarks.report("full GET and parse", Benchmarks.time(WARMUPS, RUNS,
+        new Benchmarks.Task() {
+          @Override
+          public void run() throws Exception {
+            assertEquals(5 * COPIES, full.load(server.uri()).getItems().size());
+          }
+        }));
+    Benchmarks.report("conditional GET", Benchmarks.time(WARMUPS, RUNS,
+        new Benchmarks.Task() {
+          @Override
+          public void run() throws Exception {
+            assertSame(feed, conditional.load(server.uri()));
+          }
+        }));
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares {@link Dates} with the {@link SimpleDateFormat} it replaces on
+ * dates as they appear in real feeds.
+ *
+ * @author Mr Horn
+ */
+public class DatesTest extends TestCase {
+
+  /**
+   * Dates which both parsers read the same.
+   */
+  private static final String[] SAME = {
+      "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 6 Sep 2010 00:01:00 +0000",
+      "Wed, 02 Oct 2002 15:00:00 +0200",
+      "Sun, 18 Mar 2012 22:15:00 -0700",
+      "Tue, 10 Jun 2003 04:00:00 GMT",
+      "Mon, 19 Mar 2012 11:00:00 UTC",
+      "Thu, 15 Mar 2012 18:29:47 EST",
+      "Fri, 16 Mar 2012 08:05:12 PDT",
+      "Mon, 19 Mar 2012 11:00:00 AKDT",
+      "Mon, 19 Mar 2012 11:00:00 HST",
+      "Mon, 19 Mar 2012 11:00:00 WEST",
+      "Mon, 19 Mar 2012 11:00:00 BST",
+      "Mon, 19 Mar 2012 11:00:00 CET",
+      "Mon, 19 Mar 2012 11:00:00 CEST",
+      "Mon, 19 Mar 2012 11:00:00 MEST",
+      "Mon, 19 Mar 2012 11:00:00 EEST",
+      "Mon, 19 Mar 2012 11:00:00 MSK",
+      "Mon, 19 Mar 2012 11:00:00 SGT",
+      "Mon, 19 Mar 2012 11:00:00 HKT",
+      "Mon, 19 Mar 2012 11:00:00 AWST",
+      "Mon, 19 Mar 2012 11:00:00 JST",
+      "Mon, 19 Mar 2012 11:00:00 ACST",
+      "Mon, 19 Mar 2012 11:00:00 AEST",
+      "Mon, 19 Mar 2012 11:00:00 AEDT",
+      "Mon, 19 Mar 2012 11:00:00 NZDT" };
+
+  /**
+   * Dates which only {@link Dates} reads correctly, each followed by the
+   * same date in the form both parsers read the same.
+   */
+  private static final String[] EQUIVALENT = {
+      "06 Sep 2010 00:01:00 +0000", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 06 Sep 2010 00:01 +0000", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 06 Sep 10 00:01:00 +0000", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 06 September 2010 00:01:00 +0000", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 06 Sep 2010 00:01:00 UT", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 06 Sep 2010 00:01:00 Z", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 06 Sep 2010 00:01:00", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "Mon, 19 Mar 2012 11:00:00 IST", "Mon, 19 Mar 2012 11:00:00 +0530",
+      "2010-09-06T00:01:00Z", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "2010-09-06T02:01:00+02:00", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "2010-09-05T19:01-05:00", "Mon, 06 Sep 2010 00:01:00 +0000",
+      "2010-09-06", "Mon, 06 Sep 2010 00:00:00 +0000" };
+
+  /**
+   * Dates which are invalid, mostly because of their zones.
+   */
+  private static final String[] INVALID = {
+      "Mon, 19 Mar 2012 11:00:00 XYZ",
+      "Mon, 19 Mar 2012 11:00:00 Europe/Berlin",
+      "Mon, 19 Foo 2012 11:00:00 GMT",
+      "Mon, 32 Mar 2012 11:00:00 GMT",
+      "Mon, 19 Mar 2012 25:00:00 GMT",
+      "2010-13-06T00:01:00Z",
+      "yesterday",
+      "" };
+
+  private static long parseWithFormat(String date) throws ParseException {
+    return new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss Z", Locale.ENGLISH).parse(date)
+        .getTime();
+  }
+
+  public void testSameAsFormat() throws ParseException {
+    for (String date : SAME) {
+      assertEquals(date, parseWithFormat(date), Dates.parseMillis(date));
+    }
+  }
+
+  public void testEquivalentForms() throws ParseException {
+    for (int i = 0; i < EQUIVALENT.length; i += 2) {
+      assertEquals(EQUIVALENT[i], parseWithFormat(EQUIVALENT[i + 1]),
+          Dates.parseMillis(EQUIVALENT[i]));
+    }
+  }
+
+  public void testFractionalSeconds() throws ParseException {
+    assertEquals(parseWithFormat("Mon, 06 Sep 2010 00:01:00 +0000") + 123,
+        Dates.parseMillis("2010-09-06T00:01:00.123456Z"));
+  }
+
+  public void testInvalid() {
+    for (String date : INVALID) {
+      assertEquals(date, Dates.INVALID, Dates.parseMillis(date));
+    }
+    assertEquals(Dates.INVALID, Dates.parseMillis(null));
+  }
+
+}
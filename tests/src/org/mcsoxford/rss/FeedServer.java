@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal keep-alive HTTP server on the loopback interface which answers
+ * every GET request with the same response. If the response has an ETag and
+ * the request repeats it in If-None-Match, the server answers 304 instead.
+ *
+ * @author Mr Horn
+ */
+final class FeedServer implements Closeable {
+
+  private final int status;
+  private final String etag;
+  private final byte[] body;
+  private final ServerSocket socket;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger connections = new AtomicInteger();
+
+  FeedServer(int status, String etag, byte[] body) throws IOException {
+    this.status = status;
+    this.etag = etag;
+    this.body = body;
+    this.socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+
+    final Thread acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        accept();
+      }
+    }, "FeedServer");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the URI under which the response is served.
+   */
+  String uri() {
+    return "http://127.0.0.1:" + socket.getLocalPort() + "/feed";
+  }
+
+  /**
+   * Returns the number of requests which have been answered so far.
+   */
+  int requests() {
+    return requests.get();
+  }
+
+  /**
+   * Returns the number of connections which have been accepted so far.
+   */
+  int connections() {
+    return connections.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+
+  private void accept() {
+    try {
+      while (true) {
+        final Socket connection = socket.accept();
+        connections.incrementAndGet();
+        final Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            serve(connection);
+          }
+        }, "FeedServer connection");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    } catch (IOException e) {
+      // the server has been closed
+    }
+  }
+
+  private void serve(Socket connection) {
+    try {
+      final BufferedReader in = new BufferedReader(new InputStreamReader(
+          connection.getInputStream(), "US-ASCII"));
+      final OutputStream out = connection.getOutputStream();
+      String line;
+      while ((line = in.readLine()) != null) {
+        // read the request headers
+        boolean notModified = false;
+        while (line != null && line.length() > 0) {
+          if (etag != null && line.equalsIgnoreCase("If-None-Match: " + etag)) {
+            notModified = true;
+          }
+          line = in.readLine();
+        }
+
+        final StringBuilder head = new StringBuilder();
+        if (notModified) {
+          head.append("HTTP/1.1 304 Not Modified\r\n");
+        } else {
+          head.append("HTTP/1.1 ").append(status).append(" Status\r\n");
+          head.append("Content-Type: application/rss+xml\r\n");
+          head.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        if (etag != null) {
+          head.append("ETag: ").append(etag).append("\r\n");
+        }
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes("US-ASCII"));
+        if (!notModified) {
+          out.write(body);
+        }
+        out.flush();
+        requests.incrementAndGet();
+      }
+    } catch (IOException e) {
+      // the client has closed the connection
+    } finally {
+      try {
+        connection.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+}
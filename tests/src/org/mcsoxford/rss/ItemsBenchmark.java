@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import junit.framework.TestCase;
+
+/**
+ * Measures iteration and indexed access over the items of feeds with 10 to
+ * 100,000 items. Both must grow linearly with the number of items.
+ *
+ * @author Mr Horn
+ */
+public class ItemsBenchmark extends TestCase {
+
+  private static final int[] SIZES = { 10, 100, 1000, 10000, 100000 };
+  private static final int WARMUPS = 3;
+  private static final int RUNS = 10;
+
+  /** Keeps the loops from being optimized away */
+  private int visited;
+
+  public void testAccess() throws Exception {
+    for (int size : SIZES) {
+      final RSSFeed feed = new RSSFeed(size, RSSConfig.TITLE);
+      for (int i = 0; i < size; i++) {
+        feed.addItem(new RSSItem((byte) 0, (byte) 0, RSSConfig.TITLE));
+      }
+      feed.trimToSize();
+
+      final List<RSSItem> items = feed.getItems();
+      assertTrue(items instanceof RandomAccess);
+      Benchmarks.report(size + " items, indexed", Benchmarks.time(WARMUPS, RUNS,
+          new Benchmarks.Task() {
+            @Override
+            public void run() {
+              for (int i = 0, n = items.size(); i < n; i++) {
+                if (items.get(i) != null) {
+                  visited++;
+                }
+              }
+            }
+          }));
+      Benchmarks.report(size + " items, iterator", Benchmarks.time(WARMUPS, RUNS,
+          new Benchmarks.Task() {
+            @Override
+            public void run() {
+              for (Iterator<RSSItem> i = items.iterator(); i.hasNext();) {
+                if (i.next() != null) {
+                  visited++;
+                }
+              }
+            }
+          }));
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+
+import android.os.Debug;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that parsing the same feed again and again allocates no more than
+ * the first parse did, i.e. that the per-thread handler, its element table and
+ * its text buffer are reused instead of growing or being rebuilt.
+ *
+ * @author Mr Horn
+ */
+public class ParserAllocationTest extends TestCase {
+
+  private static final int COPIES = 10;
+  private static final int PARSES = 20;
+
+  /**
+   * Allowed growth in percent, for allocations of the runtime itself.
+   */
+  private static final int TOLERANCE_PERCENT = 10;
+
+  public void testRepeatedParsesStayFlat() throws Exception {
+    final byte[] feed = Benchmarks.feed(COPIES);
+    final RSSParser parser = new RSSParser(new RSSConfig());
+
+    // the first parse of a thread builds its context
+    parse(parser, feed);
+    final int first = allocations(parser, feed);
+    int last = first;
+    for (int i = 1; i < PARSES; i++) {
+      last = allocations(parser, feed);
+    }
+
+    assertTrue("first parse allocated " + first + ", last parse " + last,
+        last <= first + first * TOLERANCE_PERCENT / 100);
+  }
+
+  private static int allocations(RSSParser parser, byte[] feed) {
+    Debug.startAllocCounting();
+    try {
+      Debug.resetThreadAllocCount();
+      parse(parser, feed);
+      return Debug.getThreadAllocCount();
+    } finally {
+      Debug.stopAllocCounting();
+    }
+  }
+
+  private static void parse(RSSParser parser, byte[] feed) {
+    assertEquals(5 * COPIES, parser.parse(new ByteArrayInputStream(feed)).getItems().size());
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the SAX and the pull parser on a feed of 200 items, once with all
+ * fields and once with the fields the ticker selects.
+ *
+ * @author Mr Horn
+ */
+public class ParserBenchmark extends TestCase {
+
+  private static final int COPIES = 40;
+  private static final int WARMUPS = 5;
+  private static final int RUNS = 20;
+
+  private static final int TICKER_FIELDS = RSSConfig.TITLE | RSSConfig.LINK
+      | RSSConfig.PUBDATE | RSSConfig.SOURCE | RSSConfig.THUMBNAILS | RSSConfig.GUID;
+
+  public void testParse() throws Exception {
+    final byte[] feed = Benchmarks.feed(COPIES);
+    for (int fields : new int[] { RSSConfig.ALL, TICKER_FIELDS }) {
+      final String name = fields == RSSConfig.ALL ? "all fields" : "ticker fields";
+      final RSSConfig config = new RSSConfig(fields);
+      Benchmarks.report("SAX parser, " + name, parse(new RSSParser(config), feed));
+      Benchmarks.report("pull parser, " + name, parse(new RSSPullParser(config), feed));
+    }
+  }
+
+  private static long parse(final RSSParserSPI parser, final byte[] feed) throws Exception {
+    return Benchmarks.time(WARMUPS, RUNS, new Benchmarks.Task() {
+      @Override
+      public void run() {
+        assertEquals(5 * COPIES, parser.parse(new ByteArrayInputStream(feed)).getItems().size());
+      }
+    });
+  }
+
+}
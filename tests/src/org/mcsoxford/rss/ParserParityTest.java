@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Parses the same fixture with the SAX and the pull parser and checks that
+ * both build the same RSS feed, whichever fields have been selected.
+ *
+ * @author Mr Horn
+ */
+public class ParserParityTest extends TestCase {
+
+  static final String FIXTURE = "feed.xml";
+
+  private static final int[] FIELDS = {
+      RSSConfig.ALL,
+      RSSConfig.TITLE | RSSConfig.LINK | RSSConfig.PUBDATE | RSSConfig.SOURCE
+          | RSSConfig.THUMBNAILS | RSSConfig.GUID,
+      RSSConfig.TITLE | RSSConfig.LINK,
+      RSSConfig.THUMBNAILS };
+
+  public void testSameFeed() throws IOException {
+    for (int fields : FIELDS) {
+      final RSSConfig config = new RSSConfig(fields);
+      final String sax = describe(parse(new RSSParser(config)));
+      final String pull = describe(parse(new RSSPullParser(config)));
+      assertEquals("fields " + Integer.toHexString(fields), sax, pull);
+    }
+  }
+
+  public void testThumbnailsInsideMediaElements() throws IOException {
+    final RSSConfig config = new RSSConfig(RSSConfig.THUMBNAILS);
+    for (RSSParserSPI parser : new RSSParserSPI[] { new RSSParser(config),
+        new RSSPullParser(config) }) {
+      final List<RSSItem> items = parse(parser).getItems();
+      assertEquals(5, items.size());
+      assertEquals("media:group", 1, items.get(0).getThumbnails().size());
+      assertEquals("media:content", 1, items.get(1).getThumbnails().size());
+      assertEquals(2, items.get(2).getThumbnails().size());
+      assertEquals("http://example.com/images/1-small.jpg",
+          items.get(0).getThumbnails().get(0).getUrl().toString());
+    }
+  }
+
+  static RSSFeed parse(RSSParserSPI parser) throws IOException {
+    final InputStream in = ParserParityTest.class.getResourceAsStream(FIXTURE);
+    try {
+      return parser.parse(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Returns all loaded fields of the feed and its items, one per line.
+   */
+  private static String describe(RSSFeed feed) {
+    final StringBuilder out = new StringBuilder();
+    describe(out, feed);
+    out.append("ttl=").append(feed.getTtl()).append('\n');
+    for (RSSItem item : feed.getItems()) {
+      out.append("item\n");
+      describe(out, item);
+      if (item.isLoaded(RSSConfig.CONTENT)) {
+        out.append("content=").append(item.getContent()).append('\n');
+      }
+      if (item.isLoaded(RSSConfig.GUID)) {
+        out.append("guid=").append(item.getGuid()).append('\n');
+      }
+      if (item.isLoaded(RSSConfig.SOURCE)) {
+        out.append("source=").append(item.getSourceName()).append(' ')
+            .append(item.getSourceUrl()).append('\n');
+      }
+      if (item.isLoaded(RSSConfig.THUMBNAILS)) {
+        for (MediaThumbnail thumbnail : item.getThumbnails()) {
+          out.append("thumbnail=").append(thumbnail.getUrl()).append(' ')
+              .append(thumbnail.getWidth()).append('x').append(thumbnail.getHeight())
+              .append('\n');
+        }
+      }
+    }
+    return out.toString();
+  }
+
+  private static void describe(StringBuilder out, RSSBase base) {
+    if (base.isLoaded(RSSConfig.TITLE)) {
+      out.append("title=").append(base.getTitle()).append('\n');
+    }
+    if (base.isLoaded(RSSConfig.LINK)) {
+      out.append("link=").append(base.getLink()).append('\n');
+    }
+    if (base.isLoaded(RSSConfig.DESCRIPTION)) {
+      out.append("description=").append(base.getDescription()).append('\n');
+    }
+    if (base.isLoaded(RSSConfig.PUBDATE)) {
+      out.append("pubDate=").append(base.getPubDate()).append('\n');
+    }
+    if (base.isLoaded(RSSConfig.CATEGORIES)) {
+      out.append("categories=").append(base.getCategories()).append('\n');
+    }
+  }
+
+}
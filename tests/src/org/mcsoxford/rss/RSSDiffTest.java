@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks how {@link RSSDiff} identifies items without links and items which
+ * share their identity.
+ *
+ * @author Mr Horn
+ */
+public class RSSDiffTest extends TestCase {
+
+  private static final int FIELDS = RSSConfig.TITLE | RSSConfig.LINK | RSSConfig.PUBDATE
+      | RSSConfig.GUID;
+
+  private static RSSItem item(String link, String guid, String title, long pubDate) {
+    final RSSItem item = new RSSItem((byte) 0, (byte) 0, FIELDS);
+    item.setLink(link == null ? null : android.net.Uri.parse(link));
+    item.setGuid(guid);
+    item.setTitle(title);
+    item.setPubDate(pubDate == 0 ? null : new Date(pubDate));
+    return item;
+  }
+
+  private static List<RSSItem> items(RSSItem... items) {
+    return Arrays.asList(items);
+  }
+
+  public void testGuidWithoutLink() {
+    final RSSItem a = item(null, "a", "A", 1000);
+    final RSSItem b = item(null, "b", "B", 2000);
+    final RSSItem b2 = item(null, "b", "B", 2000);
+    final RSSItem c = item(null, "c", "C", 3000);
+    final RSSItem c2 = item(null, "c", "C corrected", 3000);
+
+    final RSSDiff diff = RSSDiff.compare(items(a, b, c), items(b2, c2, item(null, "d", "D", 0)));
+    assertEquals(1, diff.getAdded().size());
+    assertEquals("d", diff.getAdded().get(0).getGuid());
+    assertEquals(Collections.singletonList(a), diff.getRemoved());
+    assertEquals(Collections.singletonList(c2), diff.getChanged());
+    assertSame(b, diff.getUnchanged(b2));
+    assertNull(diff.getUnchanged(c2));
+  }
+
+  public void testTitleAndDateWithoutLinkOrGuid() {
+    final RSSItem a = item(null, null, "A", 1000);
+    final RSSItem b = item(null, null, "B", 2000);
+    final RSSItem a2 = item(null, null, "A", 1000);
+    final RSSItem b2 = item(null, null, "B", 3000);
+
+    final RSSDiff diff = RSSDiff.compare(items(a, b), items(a2, b2));
+    assertSame(a, diff.getUnchanged(a2));
+    assertEquals(Collections.singletonList(b2), diff.getAdded());
+    assertEquals(Collections.singletonList(b), diff.getRemoved());
+    assertTrue(diff.getChanged().isEmpty());
+  }
+
+  public void testWithoutAnyIdentity() {
+    final RSSItem a = item(null, null, null, 0);
+    final RSSItem b = item(null, null, null, 0);
+
+    final RSSDiff diff = RSSDiff.compare(items(a, b), items(a));
+    assertSame(a, diff.getUnchanged(a));
+    assertEquals(Collections.singletonList(b), diff.getRemoved());
+    assertTrue(diff.getAdded().isEmpty());
+  }
+
+  public void testDuplicateLinks() {
+    final RSSItem one = item("http://example.com/", null, "one", 1000);
+    final RSSItem two = item("http://example.com/", null, "two", 2000);
+    final RSSItem one2 = item("http://example.com/", null, "one", 1000);
+    final RSSItem two2 = item("http://example.com/", null, "two", 2000);
+    final RSSItem three = item("http://example.com/", null, "three", 3000);
+
+    final RSSDiff diff = RSSDiff.compare(items(one, two), items(one2, two2, three));
+    assertEquals(Collections.singletonList(three), diff.getAdded());
+    assertTrue(diff.getRemoved().isEmpty());
+    assertTrue(diff.getChanged().isEmpty());
+    assertSame(one, diff.getUnchanged(one2));
+    assertSame(two, diff.getUnchanged(two2));
+  }
+
+  public void testRemovedDuplicate() {
+    final RSSItem one = item("http://example.com/", null, "one", 1000);
+    final RSSItem two = item("http://example.com/", null, "two", 2000);
+
+    final RSSDiff diff = RSSDiff.compare(items(one, two), items(one));
+    assertEquals(Collections.singletonList(two), diff.getRemoved());
+    assertTrue(diff.getAdded().isEmpty());
+    assertTrue(diff.getChanged().isEmpty());
+  }
+
+  public void testUnchangedFeed() {
+    final List<RSSItem> items = items(item("http://example.com/a", null, "A", 1000),
+        item("http://example.com/b", "b", "B", 2000));
+    assertTrue(RSSDiff.compare(items, items).isEmpty());
+  }
+
+}
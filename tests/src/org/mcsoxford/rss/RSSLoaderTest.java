@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that failing listeners neither stop an {@link RSSLoader} worker nor
+ * keep the load slot of a host.
+ *
+ * @author Mr Horn
+ */
+public class RSSLoaderTest extends TestCase {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  /**
+   * Reader which returns an empty RSS feed without any network access.
+   */
+  private static final class EmptyReader extends RSSReader {
+
+    @Override
+    public RSSFeed load(String uri) {
+      return new RSSFeed(0, new RSSConfig().fields);
+    }
+
+  }
+
+  private static final RSSLoader.Listener THROWING = new RSSLoader.Listener() {
+    @Override
+    public void loaded(String uri, RSSFeed feed) {
+      throw new IllegalStateException("listener failure");
+    }
+
+    @Override
+    public void failed(String uri, Exception cause) {
+      throw new IllegalStateException("listener failure");
+    }
+  };
+
+  private static final Executor REJECTING = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      throw new RejectedExecutionException("executor failure");
+    }
+  };
+
+  private RSSLoader loader;
+
+  @Override
+  protected void setUp() {
+    // a single worker with a single slot per host, so that the second load
+    // needs both the worker and the slot of the first one
+    loader = new RSSLoader(new LinkedBlockingQueue<RSSLoader.RSSFuture>(), 1, 1, null,
+        Integer.MAX_VALUE, RSSLoader.Overflow.BLOCK, new EmptyReader());
+  }
+
+  @Override
+  protected void tearDown() {
+    loader.stop();
+  }
+
+  public void testThrowingListener() throws Exception {
+    loader.setListener(THROWING, null);
+    final Future<RSSFeed> first = loader.load("http://example.com/first");
+    final Future<RSSFeed> second = loader.load("http://example.com/second");
+
+    assertNotNull(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertNotNull(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(2, loader.getFaultCount());
+  }
+
+  public void testRejectingExecutor() throws Exception {
+    loader.load("http://example.com/first", 0, THROWING, REJECTING);
+    final Future<RSSFeed> second = loader.load("http://example.com/second");
+
+    final Future<RSSFeed> published = loader.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertNotNull("the worker has stopped", published);
+    assertNotNull(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, loader.getFaultCount());
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import junit.framework.TestCase;
+
+/**
+ * Loads RSS feeds from a local {@link FeedServer} with the shared HTTP client.
+ *
+ * @author Mr Horn
+ */
+public class RSSReaderTest extends TestCase {
+
+  /**
+   * More loads than the shared client keeps connections to a single host, so
+   * that a single leaked connection per load exhausts the pool.
+   */
+  private static final int LOADS = 2 * SharedHttpClient.MAX_CONNECTIONS_PER_ROUTE + 1;
+
+  private static final RSSItemSink IGNORE = new RSSItemSink() {
+    @Override
+    public boolean item(RSSItem item) {
+      return true;
+    }
+  };
+
+  private FeedServer server;
+
+  @Override
+  protected void setUp() throws Exception {
+    server = new FeedServer(404, null, "<html>Not Found</html>".getBytes("UTF-8"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.close();
+  }
+
+  public void testErrorsReleaseConnections() {
+    final RSSReader reader = new RSSReader();
+    for (int i = 0; i < LOADS; i++) {
+      try {
+        reader.load(server.uri());
+        fail("HTTP error must not be parsed");
+      } catch (RSSReaderException e) {
+        assertEquals(404, e.getStatus());
+      }
+    }
+
+    assertEquals(LOADS, server.requests());
+    assertEquals("error responses must keep their connection alive", 1, server.connections());
+  }
+
+  public void testStreamedErrorsReleaseConnections() {
+    final RSSReader reader = new RSSReader();
+    for (int i = 0; i < LOADS; i++) {
+      try {
+        reader.load(server.uri(), IGNORE);
+        fail("HTTP error must not be parsed");
+      } catch (RSSReaderException e) {
+        assertEquals(404, e.getStatus());
+      }
+    }
+
+    assertEquals(LOADS, server.requests());
+    assertEquals("error responses must keep their connection alive", 1, server.connections());
+  }
+
+}
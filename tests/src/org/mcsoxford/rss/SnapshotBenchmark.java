@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2010 A. Horn
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mcsoxford.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import android.test.InstrumentationTestCase;
+
+/**
+ * Compares reading a feed from its snapshot, as on a cold start, to parsing
+ * the RSS document it has been written from.
+ *
+ * @author Mr Horn
+ */
+public class SnapshotBenchmark extends InstrumentationTestCase {
+
+  private static final String URI = "http://example.com/rss";
+  private static final int COPIES = 40;
+  private static final int WARMUPS = 5;
+  private static final int RUNS = 20;
+
+  private File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    file = new File(getInstrumentation().getTargetContext().getCacheDir(), "snapshot-benchmark");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+  }
+
+  public void testRead() throws Exception {
+    final byte[] document = Benchmarks.feed(COPIES);
+    final RSSParser parser = new RSSParser(new RSSConfig());
+    RSSSnapshot.write(URI, parser.parse(new ByteArrayInputStream(document)), file);
+
+    Benchmarks.report("parse " + document.length + " bytes", Benchmarks.time(WARMUPS, RUNS,
+        new Benchmarks.Task() {
+          @Override
+          public void run() {
+            assertEquals(5 * COPIES, parser.parse(new ByteArrayInputStream(document))
+                .getItems().size());
+          }
+        }));
+    Benchmarks.report("read snapshot of " + file.length() + " bytes", Benchmarks.time(WARMUPS,
+        RUNS, new Benchmarks.Task() {
+          @Override
+          public void run() throws Exception {
+            assertEquals(5 * COPIES, RSSSnapshot.read(URI, file).getItems().size());
+          }
+        }));
+  }
+
+}